@@ -37,6 +37,6 @@ LOCAL_CPPFLAGS := \
     -std=c++17 \
     $(FHEROES2_CPP_WARN_OPTIONS)
 LOCAL_EXPORT_C_INCLUDES := $(ENGINE_SRC_DIR)
-LOCAL_EXPORT_LDLIBS := -llog -lz
+LOCAL_EXPORT_LDLIBS := -landroid -llog -lz
 
 include $(BUILD_STATIC_LIBRARY)
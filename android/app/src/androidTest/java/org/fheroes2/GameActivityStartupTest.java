@@ -0,0 +1,102 @@
+/***************************************************************************
+ *   fheroes2: https://github.com/ihhub/fheroes2                           *
+ *   Copyright (C) 2025                                                    *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   This program is distributed in the hope that it will be useful,       *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with this program; if not, write to the                         *
+ *   Free Software Foundation, Inc.,                                       *
+ *   59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.             *
+ ***************************************************************************/
+
+package org.fheroes2;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ApplicationInfo;
+import android.os.SystemClock;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * GameActivity sets a StrictMode policy that kills the game process on any disk access on the main thread until the end of onCreate() in debug
+ * builds. The game runs in its own process, so this test launches it and checks that the game process survives the startup.
+ */
+@RunWith( AndroidJUnit4.class )
+public final class GameActivityStartupTest
+{
+    private static final long GAME_SESSION_START_TIMEOUT_MS = 30000;
+    private static final long GAME_SESSION_POLL_INTERVAL_MS = 100;
+
+    // The StrictMode policy is relaxed once onCreate() returns, which takes much less time than this
+    private static final long STARTUP_GRACE_PERIOD_MS = 5000;
+
+    private Context context;
+
+    @Before
+    public void setUp()
+    {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+        // The StrictMode policy that kills the process is only set in debug builds
+        assumeTrue( ( context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE ) != 0 );
+        // Without the HoMM2 assets GameActivity redirects the user to the Toolset and finishes right away
+        assumeTrue( HoMM2AssetManagement.isHoMM2AssetsPresent( context.getExternalFilesDir( null ) ) );
+
+        GameSession.terminateGameProcess( context );
+    }
+
+    @After
+    public void tearDown()
+    {
+        if ( context != null ) {
+            GameSession.terminateGameProcess( context );
+        }
+    }
+
+    @Test
+    public void startupDoesNotAccessDiskOnMainThread()
+    {
+        context.startActivity( new Intent( context, GameActivity.class ).addFlags( Intent.FLAG_ACTIVITY_NEW_TASK ) );
+
+        // If the process is killed by StrictMode, the game session never becomes active, because its marker is left with the PID of a dead process
+        assertTrue( "The game process did not start or was killed during the startup", waitForActiveGameSession() );
+
+        SystemClock.sleep( STARTUP_GRACE_PERIOD_MS );
+
+        assertTrue( "The game process was killed during the startup, see StrictMode violations in logcat", GameSession.isActive( context ) );
+    }
+
+    private boolean waitForActiveGameSession()
+    {
+        final long deadline = SystemClock.uptimeMillis() + GAME_SESSION_START_TIMEOUT_MS;
+
+        while ( SystemClock.uptimeMillis() < deadline ) {
+            if ( GameSession.isActive( context ) ) {
+                return true;
+            }
+
+            SystemClock.sleep( GAME_SESSION_POLL_INTERVAL_MS );
+        }
+
+        return false;
+    }
+}
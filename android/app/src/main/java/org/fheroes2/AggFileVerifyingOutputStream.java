@@ -0,0 +1,229 @@
+/***************************************************************************
+ *   fheroes2: https://github.com/ihhub/fheroes2                           *
+ *   Copyright (C) 2025                                                    *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   This program is distributed in the hope that it will be useful,       *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with this program; if not, write to the                         *
+ *   Free Software Foundation, Inc.,                                       *
+ *   59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.             *
+ ***************************************************************************/
+
+package org.fheroes2;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * Output stream that verifies the structure of the AGG file and calculates its SHA-256 hash while the file is being written, so that the written data
+ * does not have to be read again. The checks performed are the same as those performed by the engine when opening the AGG file.
+ */
+final class AggFileVerifyingOutputStream extends FilterOutputStream
+{
+    // 8.3 ASCIIZ file name + 2-bytes padding
+    private static final int MAX_FILENAME_SIZE = 15;
+    // Filename hash, file offset and file size
+    private static final int FILE_RECORD_SIZE = 12;
+
+    private final MessageDigest digest;
+    private final byte[] singleByteBuf = new byte[1];
+
+    private long totalSize = 0;
+
+    // Number of files in the AGG file, or -1 if it is not known yet
+    private int fileCount = -1;
+    private final byte[] fileCountBuf = new byte[2];
+
+    private byte[] fileEntries = null;
+    private int fileEntriesSize = 0;
+
+    // The name entries are located at the very end of the AGG file, so the last bytes of the file are kept in this ring buffer
+    private byte[] nameEntries = null;
+    private int nameEntriesPos = 0;
+
+    AggFileVerifyingOutputStream( final OutputStream out ) throws IOException
+    {
+        super( out );
+
+        try {
+            digest = MessageDigest.getInstance( "SHA-256" );
+        }
+        catch ( final NoSuchAlgorithmException ex ) {
+            throw new IOException( ex );
+        }
+    }
+
+    @Override
+    public void write( final int b ) throws IOException
+    {
+        singleByteBuf[0] = (byte)b;
+
+        write( singleByteBuf, 0, 1 );
+    }
+
+    @Override
+    public void write( final byte[] b, final int off, final int len ) throws IOException
+    {
+        out.write( b, off, len );
+
+        digest.update( b, off, len );
+
+        int pos = off;
+        int remaining = len;
+
+        while ( fileCount < 0 && remaining > 0 ) {
+            fileCountBuf[(int)totalSize] = b[pos];
+
+            ++totalSize;
+            ++pos;
+            --remaining;
+
+            if ( totalSize == fileCountBuf.length ) {
+                fileCount = ( fileCountBuf[0] & 0xFF ) | ( ( fileCountBuf[1] & 0xFF ) << 8 );
+
+                fileEntries = new byte[fileCount * FILE_RECORD_SIZE];
+                nameEntries = new byte[fileCount * MAX_FILENAME_SIZE];
+            }
+        }
+
+        if ( remaining == 0 ) {
+            return;
+        }
+
+        if ( fileEntriesSize < fileEntries.length ) {
+            final int size = Math.min( remaining, fileEntries.length - fileEntriesSize );
+
+            System.arraycopy( b, pos, fileEntries, fileEntriesSize, size );
+
+            fileEntriesSize += size;
+        }
+
+        updateNameEntries( b, pos, remaining );
+
+        totalSize += remaining;
+    }
+
+    /**
+     * Should be called after all the data has been written.
+     *
+     * @throws IOException if the written data is not a valid AGG file, for example if it is truncated or corrupted
+     */
+    void verify() throws IOException
+    {
+        if ( fileCount <= 0 ) {
+            throw new IOException( "AGG file contains no files" );
+        }
+
+        if ( (long)fileCount * ( FILE_RECORD_SIZE + MAX_FILENAME_SIZE ) >= totalSize ) {
+            throw new IOException( "AGG file is truncated" );
+        }
+
+        for ( int i = 0; i < fileCount; ++i ) {
+            final int fileRecordOffset = i * FILE_RECORD_SIZE;
+
+            if ( getLE32( fileEntries, fileRecordOffset ) != calculateAggFilenameHash( getFileName( i ) ) ) {
+                throw new IOException( "AGG file is corrupted" );
+            }
+
+            final long fileOffset = getLE32( fileEntries, fileRecordOffset + 4 ) & 0xFFFFFFFFL;
+            final long fileSize = getLE32( fileEntries, fileRecordOffset + 8 ) & 0xFFFFFFFFL;
+
+            if ( fileOffset + fileSize > totalSize ) {
+                throw new IOException( "AGG file is truncated" );
+            }
+        }
+    }
+
+    /**
+     * @return SHA-256 hash of the written data as a lowercase hex string. Should be called only once after all the data has been written.
+     */
+    String getSha256()
+    {
+        final StringBuilder sb = new StringBuilder();
+
+        for ( final byte b : digest.digest() ) {
+            sb.append( String.format( Locale.ROOT, "%02x", b ) );
+        }
+
+        return sb.toString();
+    }
+
+    private void updateNameEntries( final byte[] b, final int off, final int len )
+    {
+        if ( nameEntries.length == 0 ) {
+            return;
+        }
+
+        if ( len >= nameEntries.length ) {
+            System.arraycopy( b, off + len - nameEntries.length, nameEntries, 0, nameEntries.length );
+
+            nameEntriesPos = 0;
+
+            return;
+        }
+
+        final int firstPartSize = Math.min( len, nameEntries.length - nameEntriesPos );
+
+        System.arraycopy( b, off, nameEntries, nameEntriesPos, firstPartSize );
+        System.arraycopy( b, off + firstPartSize, nameEntries, 0, len - firstPartSize );
+
+        nameEntriesPos = ( nameEntriesPos + len ) % nameEntries.length;
+    }
+
+    private String getFileName( final int idx )
+    {
+        final StringBuilder sb = new StringBuilder();
+
+        for ( int i = 0; i < MAX_FILENAME_SIZE; ++i ) {
+            final byte c = nameEntries[( nameEntriesPos + idx * MAX_FILENAME_SIZE + i ) % nameEntries.length];
+            if ( c == 0 ) {
+                break;
+            }
+
+            sb.append( (char)( c & 0xFF ) );
+        }
+
+        return sb.toString();
+    }
+
+    private static int getLE32( final byte[] buf, final int offset )
+    {
+        return ( buf[offset] & 0xFF ) | ( ( buf[offset + 1] & 0xFF ) << 8 ) | ( ( buf[offset + 2] & 0xFF ) << 16 ) | ( ( buf[offset + 3] & 0xFF ) << 24 );
+    }
+
+    /**
+     * The same algorithm as the one used in fheroes2::calculateAggFilenameHash()
+     */
+    private static int calculateAggFilenameHash( final String name )
+    {
+        int hash = 0;
+        int sum = 0;
+
+        for ( int i = name.length() - 1; i >= 0; --i ) {
+            int c = name.charAt( i ) & 0xFF;
+            if ( c >= 'a' && c <= 'z' ) {
+                c -= 'a' - 'A';
+            }
+
+            hash = ( hash << 5 ) + ( hash >>> 25 );
+
+            sum += c;
+            hash += sum + c;
+        }
+
+        return hash;
+    }
+}
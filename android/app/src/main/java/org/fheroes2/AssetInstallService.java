@@ -0,0 +1,423 @@
+/***************************************************************************
+ *   fheroes2: https://github.com/ihhub/fheroes2                           *
+ *   Copyright (C) 2025                                                    *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   This program is distributed in the hope that it will be useful,       *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with this program; if not, write to the                         *
+ *   Free Software Foundation, Inc.,                                       *
+ *   59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.             *
+ ***************************************************************************/
+
+package org.fheroes2;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import android.app.Notification;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.IBinder;
+import android.os.SystemClock;
+import android.provider.DocumentsContract;
+import android.provider.OpenableColumns;
+import android.util.Log;
+
+import androidx.core.app.NotificationChannelCompat;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import androidx.core.app.ServiceCompat;
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.MutableLiveData;
+
+/**
+ * Foreground service that extracts HoMM2 assets, so that a long extraction is not interrupted when the Toolset activity is destroyed, and, as far as
+ * possible, is not killed when the app is in the background. If the process is killed anyway, the system restarts the service with the same intent, and
+ * the extraction resumes from the last checkpoint.
+ */
+public final class AssetInstallService extends Service
+{
+    static final String ACTION_EXTRACT_ZIP = "org.fheroes2.action.EXTRACT_HOMM2_ASSETS_FROM_ZIP";
+    static final String ACTION_IMPORT_DOCUMENT_TREE = "org.fheroes2.action.IMPORT_HOMM2_ASSETS_FROM_DOCUMENT_TREE";
+
+    // Whether the user has agreed to close the game session (if any) that may have unsaved progress
+    private static final String EXTRA_IS_CLOSING_GAME_SESSION_CONFIRMED = "org.fheroes2.extra.IS_CLOSING_GAME_SESSION_CONFIRMED";
+
+    enum Result
+    {
+        RESULT_NONE,
+        RESULT_SUCCESS,
+        RESULT_NO_ASSETS,
+        RESULT_ERROR
+    }
+
+    static final class State
+    {
+        final boolean isExecuting;
+        final boolean isHoMM2AssetsPresent;
+        final Result result;
+        final String error;
+        // Amount of source data processed so far
+        final long processedBytes;
+        // Total amount of source data, or -1 if it is unknown
+        final long totalBytes;
+        final long bytesPerSecond;
+
+        private State( final boolean isExecuting, final boolean isHoMM2AssetsPresent, final Result result, final String error, final long processedBytes,
+                       final long totalBytes, final long bytesPerSecond )
+        {
+            this.isExecuting = isExecuting;
+            this.isHoMM2AssetsPresent = isHoMM2AssetsPresent;
+            this.result = result;
+            this.error = error;
+            this.processedBytes = processedBytes;
+            this.totalBytes = totalBytes;
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        /**
+         * @return estimated number of seconds until the end of the extraction, or -1 if it cannot be estimated
+         */
+        long getEtaSeconds()
+        {
+            if ( totalBytes < 0 || bytesPerSecond <= 0 ) {
+                return -1;
+            }
+
+            return Math.max( totalBytes - processedBytes, 0 ) / bytesPerSecond;
+        }
+    }
+
+    /**
+     * Keeps track of the assets that have already been extracted from a particular source. The list of extracted assets is stored in a file, so it
+     * survives the death of the process. The source is identified not only by its URI, but also by its size and the time of its last modification,
+     * because the user may replace the source while keeping the same URI.
+     */
+    private static final class Checkpoint implements HoMM2AssetManagement.ExtractionObserver
+    {
+        // Minimum interval between two consecutive progress updates
+        private static final long PROGRESS_UPDATE_INTERVAL_MS = 500;
+
+        private final AssetInstallService service;
+        private final File checkpointFile;
+        private final Set<String> extractedAssets = Collections.synchronizedSet( new HashSet<>() );
+
+        private long totalBytes = -1;
+        private long processedBytes = 0;
+
+        private final long startTime = SystemClock.elapsedRealtime();
+        private long lastProgressUpdateTime = 0;
+
+        /**
+         * @param sourceSize size of the source, or -1 if it is unknown
+         * @param sourceLastModified time of the last modification of the source, or -1 if it is unknown
+         */
+        private Checkpoint( final AssetInstallService service, final File checkpointFile, final Uri sourceUri, final long sourceSize,
+                            final long sourceLastModified ) throws IOException
+        {
+            this.service = service;
+            this.checkpointFile = checkpointFile;
+            this.totalBytes = sourceSize;
+
+            final String sourceId = sourceUri.toString();
+            final String sourceVersion = String.format( Locale.ROOT, "%d %d", sourceSize, sourceLastModified );
+
+            if ( checkpointFile.exists() ) {
+                final List<String> lines = Files.readAllLines( checkpointFile.toPath(), StandardCharsets.UTF_8 );
+
+                // The first two lines contain the URI of the source and its size along with the time of its last modification, the rest of the lines contain
+                // keys of the assets that have already been extracted from it
+                if ( lines.size() >= 2 && lines.get( 0 ).equals( sourceId ) && lines.get( 1 ).equals( sourceVersion ) ) {
+                    extractedAssets.addAll( lines.subList( 2, lines.size() ) );
+
+                    Log.i( "fheroes2", String.format( "Resuming the extraction of assets, %d assets were already extracted.", extractedAssets.size() ) );
+
+                    return;
+                }
+            }
+
+            Files.write( checkpointFile.toPath(), ( sourceId + "\n" + sourceVersion + "\n" ).getBytes( StandardCharsets.UTF_8 ) );
+        }
+
+        @Override
+        public synchronized void onTotalBytesDetermined( final long totalBytes )
+        {
+            this.totalBytes = totalBytes;
+        }
+
+        @Override
+        public void onBytesProcessed( final long bytes )
+        {
+            final long now = SystemClock.elapsedRealtime();
+
+            final long processed;
+            final long total;
+            final long bytesPerSecond;
+
+            synchronized ( this ) {
+                processedBytes += bytes;
+
+                if ( now - lastProgressUpdateTime < PROGRESS_UPDATE_INTERVAL_MS ) {
+                    return;
+                }
+
+                lastProgressUpdateTime = now;
+
+                processed = processedBytes;
+                total = totalBytes;
+                bytesPerSecond = now > startTime ? processedBytes * 1000 / ( now - startTime ) : 0;
+            }
+
+            service.updateProgress( processed, total, bytesPerSecond );
+        }
+
+        @Override
+        public boolean isAssetExtracted( final String key )
+        {
+            return extractedAssets.contains( key );
+        }
+
+        @Override
+        public synchronized void onAssetExtracted( final String key ) throws IOException
+        {
+            extractedAssets.add( key );
+
+            Files.write( checkpointFile.toPath(), ( key + "\n" ).getBytes( StandardCharsets.UTF_8 ), StandardOpenOption.APPEND );
+        }
+    }
+
+    // The final state of the extraction is kept until it is consumed by calling consumeFinalState()
+    static final MutableLiveData<State> liveState = new MutableLiveData<>( new State( false, false, Result.RESULT_NONE, "", 0, -1, 0 ) );
+
+    private static final String NOTIFICATION_CHANNEL_ID = "asset_install";
+    private static final int NOTIFICATION_ID = 1;
+
+    private static final String CHECKPOINT_FILE_NAME = "homm2_assets_install.checkpoint";
+
+    private volatile boolean isExecuting = false;
+
+    /**
+     * @param isClosingGameSessionConfirmed true if the user has agreed to close the game session, see GameSession.isActive()
+     */
+    static void extractAssetsFromZip( final Context context, final Uri zipFileUri, final boolean isClosingGameSessionConfirmed )
+    {
+        startService( context, ACTION_EXTRACT_ZIP, zipFileUri, isClosingGameSessionConfirmed );
+    }
+
+    /**
+     * @param isClosingGameSessionConfirmed true if the user has agreed to close the game session, see GameSession.isActive()
+     */
+    static void importAssetsFromDocumentTree( final Context context, final Uri treeUri, final boolean isClosingGameSessionConfirmed )
+    {
+        // Keep the access to the selected directory even if the process is restarted
+        try {
+            context.getContentResolver().takePersistableUriPermission( treeUri, Intent.FLAG_GRANT_READ_URI_PERMISSION );
+        }
+        catch ( final SecurityException ex ) {
+            Log.w( "fheroes2", "Failed to take the persistable permission to read the directory.", ex );
+        }
+
+        startService( context, ACTION_IMPORT_DOCUMENT_TREE, treeUri, isClosingGameSessionConfirmed );
+    }
+
+    /**
+     * Should be called on the main thread once the final state of the extraction has been shown to the user, so that this state is not delivered again
+     * to the new observers.
+     */
+    static void consumeFinalState()
+    {
+        final State state = liveState.getValue();
+
+        if ( state != null && !state.isExecuting && state.result != Result.RESULT_NONE ) {
+            liveState.setValue( new State( false, false, Result.RESULT_NONE, "", 0, -1, 0 ) );
+        }
+    }
+
+    private static void startService( final Context context, final String action, final Uri uri, final boolean isClosingGameSessionConfirmed )
+    {
+        // The permission to read the source is passed to the service along with the intent, so the service can still read it after the restart
+        final Intent intent = new Intent( context, AssetInstallService.class )
+                                  .setAction( action )
+                                  .setData( uri )
+                                  .putExtra( EXTRA_IS_CLOSING_GAME_SESSION_CONFIRMED, isClosingGameSessionConfirmed )
+                                  .addFlags( Intent.FLAG_GRANT_READ_URI_PERMISSION );
+
+        ContextCompat.startForegroundService( context, intent );
+    }
+
+    @Override
+    public IBinder onBind( final Intent intent )
+    {
+        return null;
+    }
+
+    @Override
+    public int onStartCommand( final Intent intent, final int flags, final int startId )
+    {
+        // Only one extraction at a time is allowed
+        if ( intent == null || intent.getData() == null || isExecuting ) {
+            if ( !isExecuting ) {
+                stopSelf( startId );
+            }
+
+            return START_NOT_STICKY;
+        }
+
+        isExecuting = true;
+
+        ServiceCompat.startForeground( this, NOTIFICATION_ID, buildNotification( -1 ), ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC );
+
+        final String action = intent.getAction();
+        final Uri uri = intent.getData();
+
+        final File externalFilesDir = getExternalFilesDir( null );
+        final File cacheDir = getCacheDir();
+        final File checkpointFile = new File( getFilesDir(), CHECKPOINT_FILE_NAME );
+        final boolean isClosingGameSessionConfirmed = intent.getBooleanExtra( EXTRA_IS_CLOSING_GAME_SESSION_CONFIRMED, false );
+
+        liveState.postValue( new State( true, false, Result.RESULT_NONE, "", 0, -1, 0 ) );
+
+        new Thread( () -> {
+            State finalState;
+
+            try {
+                // The game session may have been started after the user was asked about it, its unsaved progress should not be lost silently
+                if ( !isClosingGameSessionConfirmed && GameSession.isActive( this ) ) {
+                    throw new IOException( "The game is running, please close it before installing HoMM2 assets" );
+                }
+
+                GameSession.terminateGameProcess( this );
+
+                final boolean isAssetsFound;
+
+                if ( ACTION_IMPORT_DOCUMENT_TREE.equals( action ) ) {
+                    final Uri rootUri = DocumentsContract.buildDocumentUriUsingTree( uri, DocumentsContract.getTreeDocumentId( uri ) );
+
+                    // The total size of the directory tree is not known until all its files are enumerated
+                    final Checkpoint checkpoint = new Checkpoint( this, checkpointFile, uri, -1, getSourceLastModified( rootUri ) );
+
+                    isAssetsFound = HoMM2AssetManagement.importHoMM2AssetsFromDocumentTree( externalFilesDir, uri, getContentResolver(), checkpoint );
+                }
+                else {
+                    final Checkpoint checkpoint = new Checkpoint( this, checkpointFile, uri, getSourceSize( uri ), getSourceLastModified( uri ) );
+
+                    try ( final InputStream in = getContentResolver().openInputStream( uri ) ) {
+                        isAssetsFound = HoMM2AssetManagement.extractHoMM2AssetsFromZip( externalFilesDir, cacheDir, in, checkpoint );
+                    }
+                }
+
+                // The extraction is complete, there is nothing to resume anymore
+                Files.deleteIfExists( checkpointFile.toPath() );
+
+                finalState = new State( false, HoMM2AssetManagement.isHoMM2AssetsPresent( externalFilesDir ),
+                                        isAssetsFound ? Result.RESULT_SUCCESS : Result.RESULT_NO_ASSETS, "", 0, -1, 0 );
+            }
+            catch ( final Exception ex ) {
+                Log.e( "fheroes2", "Failed to extract the assets.", ex );
+
+                // The checkpoint is kept, so if the user tries to extract assets from the same source again, the extraction will be resumed
+                finalState = new State( false, HoMM2AssetManagement.isHoMM2AssetsPresent( externalFilesDir ), Result.RESULT_ERROR, String.format( "%s", ex ), 0,
+                                        -1, 0 );
+            }
+
+            liveState.postValue( finalState );
+
+            isExecuting = false;
+
+            ServiceCompat.stopForeground( this, ServiceCompat.STOP_FOREGROUND_REMOVE );
+            stopSelf();
+        } ).start();
+
+        return START_REDELIVER_INTENT;
+    }
+
+    private void updateProgress( final long processedBytes, final long totalBytes, final long bytesPerSecond )
+    {
+        liveState.postValue( new State( true, false, Result.RESULT_NONE, "", processedBytes, totalBytes, bytesPerSecond ) );
+
+        if ( totalBytes > 0 && NotificationManagerCompat.from( this ).areNotificationsEnabled() ) {
+            try {
+                NotificationManagerCompat.from( this ).notify( NOTIFICATION_ID, buildNotification( (int)( processedBytes * 100 / totalBytes ) ) );
+            }
+            catch ( final SecurityException ex ) {
+                Log.w( "fheroes2", "Failed to update the notification.", ex );
+            }
+        }
+    }
+
+    /**
+     * @param percent progress of the extraction, or -1 if it is unknown
+     */
+    private Notification buildNotification( final int percent )
+    {
+        NotificationManagerCompat.from( this ).createNotificationChannel(
+            new NotificationChannelCompat.Builder( NOTIFICATION_CHANNEL_ID, NotificationManagerCompat.IMPORTANCE_LOW )
+                .setName( getString( R.string.asset_install_service_notification_channel_name ) )
+                .build() );
+
+        return new NotificationCompat.Builder( this, NOTIFICATION_CHANNEL_ID )
+            .setSmallIcon( R.mipmap.ic_launcher_toolset )
+            .setContentTitle( getString( R.string.asset_install_service_notification_title ) )
+            .setProgress( 100, Math.max( percent, 0 ), percent < 0 )
+            .setOngoing( true )
+            .setOnlyAlertOnce( true )
+            .build();
+    }
+
+    /**
+     * @return size of the source, or -1 if it is unknown
+     */
+    private long getSourceSize( final Uri uri )
+    {
+        try ( final Cursor cursor = getContentResolver().query( uri, new String[] { OpenableColumns.SIZE }, null, null, null ) ) {
+            if ( cursor != null && cursor.moveToNext() && !cursor.isNull( 0 ) ) {
+                return cursor.getLong( 0 );
+            }
+        }
+        catch ( final Exception ex ) {
+            Log.w( "fheroes2", "Failed to get the size of the source.", ex );
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return time of the last modification of the source in milliseconds since the epoch, or -1 if it is unknown
+     */
+    private long getSourceLastModified( final Uri uri )
+    {
+        // Not all content providers support this column, in this case the query either fails or returns nothing
+        try ( final Cursor cursor = getContentResolver().query( uri, new String[] { DocumentsContract.Document.COLUMN_LAST_MODIFIED }, null, null, null ) ) {
+            if ( cursor != null && cursor.moveToNext() && !cursor.isNull( 0 ) ) {
+                return cursor.getLong( 0 );
+            }
+        }
+        catch ( final Exception ex ) {
+            Log.w( "fheroes2", "Failed to get the time of the last modification of the source.", ex );
+        }
+
+        return -1;
+    }
+}
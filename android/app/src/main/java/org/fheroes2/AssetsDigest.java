@@ -0,0 +1,125 @@
+/***************************************************************************
+ *   fheroes2: https://github.com/ihhub/fheroes2                           *
+ *   Copyright (C) 2025                                                    *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   This program is distributed in the hope that it will be useful,       *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with this program; if not, write to the                         *
+ *   Free Software Foundation, Inc.,                                       *
+ *   59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.             *
+ ***************************************************************************/
+
+package org.fheroes2;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Contents of the assets.digest file generated by the generateAssetsDigest Gradle task. Each line of this file contains the SHA-512 hash, the size and
+ * the path (relative to the assets directory) of one of the bundled assets.
+ */
+final class AssetsDigest
+{
+    private static final Pattern LINE_PATTERN = Pattern.compile( "^([0-9a-f]{128}) +([0-9]+) (.+)$" );
+
+    private static final class Entry
+    {
+        private final String hash;
+        private final long size;
+
+        private Entry( final String hash, final long size )
+        {
+            this.hash = hash;
+            this.size = size;
+        }
+
+        private boolean isSame( final Entry other )
+        {
+            return size == other.size && hash.equals( other.hash );
+        }
+    }
+
+    // Entries are kept in the same order as in the digest file
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    private AssetsDigest()
+    {
+    }
+
+    static AssetsDigest parse( final byte[] digest ) throws IOException
+    {
+        final AssetsDigest result = new AssetsDigest();
+
+        for ( final String line : new String( digest, StandardCharsets.UTF_8 ).split( "\n" ) ) {
+            if ( line.isEmpty() ) {
+                continue;
+            }
+
+            final Matcher matcher = LINE_PATTERN.matcher( line );
+            if ( !matcher.matches() ) {
+                throw new IOException( String.format( "Invalid line in the digest of assets: %s", line ) );
+            }
+
+            // The digest may be generated on Windows
+            result.entries.put( matcher.group( 3 ).replace( '\\', '/' ), new Entry( matcher.group( 1 ), Long.parseLong( matcher.group( 2 ) ) ) );
+        }
+
+        return result;
+    }
+
+    Set<String> getPaths()
+    {
+        return Collections.unmodifiableSet( entries.keySet() );
+    }
+
+    /**
+     * @return paths of the assets that are either missing in the given previous digest or differ from their previous versions
+     */
+    List<String> getChangedPaths( final AssetsDigest previous )
+    {
+        final List<String> result = new ArrayList<>();
+
+        for ( final Map.Entry<String, Entry> entry : entries.entrySet() ) {
+            final Entry previousEntry = previous.entries.get( entry.getKey() );
+
+            if ( previousEntry == null || !previousEntry.isSame( entry.getValue() ) ) {
+                result.add( entry.getKey() );
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return paths of the assets that are present in the given previous digest, but are missing in this one
+     */
+    List<String> getRemovedPaths( final AssetsDigest previous )
+    {
+        final List<String> result = new ArrayList<>();
+
+        for ( final String path : previous.entries.keySet() ) {
+            if ( !entries.containsKey( path ) ) {
+                result.add( path );
+            }
+        }
+
+        return result;
+    }
+}
@@ -1,174 +1,631 @@
 package org.fheroes2;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import android.content.Intent;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.content.res.Configuration;
+import android.content.pm.ApplicationInfo;
+import android.graphics.Color;
+import android.graphics.Typeface;
 import android.os.Bundle;
+import android.os.StrictMode;
 import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ProgressBar;
+import android.widget.RelativeLayout;
+import android.widget.TextView;
 
 // --- ACCESSIBILITY & TTS IMPORTS ---
-import android.os.Handler;
-import android.os.Looper;
 import android.view.MotionEvent;
 import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityManager;
 import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
 import android.speech.tts.Voice;
 import android.media.AudioAttributes;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 // ------------------------------------
 
 import org.apache.commons.io.IOUtils;
 import org.libsdl.app.SDLActivity;
 
-public final class GameActivity extends SDLActivity implements TextToSpeech.OnInitListener
+public final class GameActivity extends SDLActivity
 {
-    // Используем Handler главного потока для безопасных вызовов из JNI
-    private static final Handler uiHandler = new Handler(Looper.getMainLooper());
-    private static TextToSpeech tts;
-    private static boolean isTtsReady = false;
-    
-    // Переменные для защиты от спама
-    private static String lastText = "";
-    private static long lastSpeakTime = 0;
-    // Уменьшаем задержку до 300мс — это достаточно для отсева дребезга, 
-    // но позволяет быстро прощупывать один и тот же объект
-    private static final long SPAM_THRESHOLD_MS = 300; 
+    // The TTS engine is created on its own thread, but is used by the speech dispatcher thread
+    private static volatile TextToSpeech tts;
+    private static volatile boolean isTtsReady = false;
+    // Set on the main thread once the TTS initialization is started, reset on the TTS initialization thread if it has failed, so it can be retried
+    private static final AtomicBoolean isTtsInitStarted = new AtomicBoolean( false );
+
+    // Silent utterance spoken once the TTS engine is initialized to load the voice, the engine is considered ready once it is finished
+    private static final String TTS_WARM_UP_UTTERANCE_ID = "f2_access_warm_up";
+
+    private static final String UTTERANCE_CACHE_DIR_NAME = "utterances";
+
+    // Created once the TTS engine is initialized, since the clips depend on the voice
+    private static volatile UtteranceCache utteranceCache = null;
+    private static File utteranceCacheDir = null;
+
+    private static final SpeechMetrics speechMetrics = new SpeechMetrics();
+
+    // The next utterance is synthesized by the additional TTS engine while the current one is spoken, unless the device has little memory
+    private static final TtsEnginePool ttsEnginePool = new TtsEnginePool();
+
+    // Progress of the utterances of both the main and the additional TTS engines
+    private static final UtteranceProgressListener utteranceProgressListener = new UtteranceProgressListener() {
+        @Override
+        public void onStart( final String utteranceId )
+        {
+            speechMetrics.onUtteranceStarted( utteranceId );
+        }
+
+        @Override
+        public void onDone( final String utteranceId )
+        {
+            onUtteranceFinished( utteranceId, true );
+        }
+
+        @Override
+        @Deprecated
+        public void onError( final String utteranceId )
+        {
+            onUtteranceFinished( utteranceId, false );
+        }
+
+        @Override
+        public void onStop( final String utteranceId, final boolean interrupted )
+        {
+            onUtteranceFinished( utteranceId, false );
+        }
+    };
+
+    // Messages are normalized using the dictionary of the game language, which is passed by the native code once the game language is set. Until then
+    // the dictionary of the device locale is used.
+    private static volatile SpeechNormalizer speechNormalizer = null;
+    private static volatile Context speechDictionaryContext = null;
+    // Accessed only by the native speech thread once the game is started
+    private static String speechLanguage = null;
+
+    // Speech rate bounds are passed by the native code once the game configuration file is loaded on each game launch
+    private static final SpeechRateController speechRateController = new SpeechRateController();
+
+    private static final SpeechScheduler speechScheduler = new SpeechScheduler( new SpeechScheduler.Speaker() {
+        @Override
+        public int speak( final String text, final float pitch, final float rate, final String utteranceId )
+        {
+            return speakInternal( text, pitch, rate, utteranceId );
+        }
+
+        @Override
+        public void onIdle()
+        {
+            final UtteranceCache cache = utteranceCache;
+            if ( cache != null && isTtsReady ) {
+                cache.synthesizeNext( tts );
+            }
+        }
+
+        @Override
+        public boolean isReady()
+        {
+            return isTtsReady && tts != null;
+        }
+
+        @Override
+        public void prefetch( final String text, final float pitch, final float rate )
+        {
+            final TextToSpeech engine = ttsEnginePool.getPrefetchEngine();
+            final UtteranceCache cache = utteranceCache;
+            if ( engine != null && cache != null ) {
+                cache.prefetch( engine, text, pitch, rate );
+            }
+        }
+    }, speechMetrics, speechRateController );
+
+    // Messages for the screen reader are handled on a dedicated thread instead of the main one, which also dispatches the input events
+    private static final SpeechDispatcher speechDispatcher = new SpeechDispatcher( new SpeechDispatcher.MessageHandler() {
+        @Override
+        public void handleMessage( final String text, final int attributes, final long emitTime, final long postTime )
+        {
+            handleScreenReaderMessage( text, attributes, emitTime, postTime );
+        }
+
+        @Override
+        public void onMessagesHandled()
+        {
+            speechScheduler.dispatch();
+        }
+    } );
+
+    // Maximum number of threads used to extract the bundled assets
+    private static final int MAX_ASSET_EXTRACTION_THREADS = 4;
+
+    // Released once the bundled assets are extracted (or the extraction fails), the native code is not started until then
+    private final CountDownLatch assetsReadyLatch = new CountDownLatch( 1 );
+
+    // Displayed until the bundled assets are extracted
+    private View splashView = null;
+
+    // Bundled assets located in these directories are never modified, so instead of being extracted they are read by the native code directly
+    // from the APK (see bundled_assets.h)
+    private static final String[] READ_THROUGH_ASSET_DIRS = { "files/data/", "files/lang/" };
+
+    // Optional pack of the read-through assets generated by the generateAssetsPack Gradle task, it is mapped into memory by the native code as a whole
+    private static final String ASSETS_PACK_PATH = "assets.pack";
+
+    // Registry of the bundled assets read directly from the APK, it is filled before the assets ready latch is released
+    private String readThroughAssetsRootDir = null;
+    private String[] readThroughAssetPaths = new String[0];
+    private boolean isAssetsPackPresent = false;
+
+    private static native void registerGameActivity();
+
+    private static native void registerBundledAssets( final AssetManager assetManager, final String rootDir, final String[] assetPaths );
+
+    private static native void registerBundledAssetsPack( final String rootDir, final String packPath );
+
+    private final StartupTimeline startupTimeline = new StartupTimeline();
+
+    // File with the reports of the last game startups, it is located in the external files directory to be easily accessible
+    private volatile File startupReportsFile = null;
+
+    private static final String SPEECH_METRICS_FILE_NAME = "speech_metrics.txt";
+    private static final long SPEECH_METRICS_OVERLAY_UPDATE_INTERVAL_MS = 1000;
+
+    // Speech metrics are saved to this file in the external files directory once the game is closed
+    private volatile File speechMetricsFile = null;
+
+    // Debug overlay with the summary of the speech metrics, it is shown only in debug builds
+    private TextView speechMetricsView = null;
+    private final Runnable speechMetricsViewUpdater = this::updateSpeechMetricsOverlay;
 
     @Override
     protected void onCreate( final Bundle savedInstanceState )
     {
-        final File filesDir = getFilesDir();
-        final File externalFilesDir = getExternalFilesDir( null );
+        final boolean isDebuggable = ( getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE ) != 0;
+
+        // Any disk access on the main thread during the startup crashes the debug builds, so that such a regression does not go unnoticed, as it may
+        // lead to ANRs. Even the paths of the app directories are obtained on the worker threads, because the system may create these directories.
+        if ( isDebuggable ) {
+            StrictMode.setThreadPolicy( new StrictMode.ThreadPolicy.Builder().detectDiskReads().detectDiskWrites().penaltyLog().penaltyDeath().build() );
+        }
+
+        // Tell the Toolset that the game session has started, so it does not terminate this process without asking the user first
+        GameSession.onStarted( this );
+
+        speechDictionaryContext = getApplicationContext();
+        speechLanguage = null;
+        speechNormalizer = new SpeechNormalizer( speechDictionaryContext.getResources(), R.raw.speech_dictionary );
 
-        if ( isAssetsDigestChanged( "assets.digest", new File( filesDir, "assets.digest" ) ) ) {
+        new Thread( () -> {
             try {
-                extractAssets( "files", externalFilesDir );
-                extractAssets( "maps", externalFilesDir );
-                extractAssets( "assets.digest", filesDir );
+                final File externalFilesDir = getExternalFilesDir( null );
+
+                startupReportsFile = new File( externalFilesDir, StartupTimeline.REPORTS_FILE_NAME );
+                speechMetricsFile = new File( externalFilesDir, SPEECH_METRICS_FILE_NAME );
+
+                // The game cannot be started without the HoMM2 assets. This check is performed before the bundled assets are extracted, so the
+                // Toolset activity is shown before the native code is started in all but the rarest cases. Even if the native code has been
+                // started, it shows a missing resources message and quits as soon as this activity is finished.
+                if ( !HoMM2AssetManagement.isHoMM2AssetsPresent( externalFilesDir ) ) {
+                    runOnUiThread( () -> {
+                        startActivity( new Intent( this, ToolsetActivity.class ) );
+                        finish();
+                    } );
+                }
+
+                syncAssets( "assets.digest", new File( getFilesDir(), "assets.digest" ), externalFilesDir );
             }
             catch ( final Exception ex ) {
                 Log.e( "fheroes2", "Failed to extract assets.", ex );
             }
-        }
+            finally {
+                assetsReadyLatch.countDown();
+
+                runOnUiThread( this::hideSplash );
+            }
+        } ).start();
 
         // --- ИНИЦИАЛИЗАЦИЯ TTS ---
-        tts = new TextToSpeech(this, this);
+        // The TTS engine is bound to the application context, so it is not affected by the recreation of this activity. It is constructed and
+        // initialized on its own thread, since binding to the TTS service and loading the voice may take a while.
+        if ( isTtsInitStarted.compareAndSet( false, true ) ) {
+
+            final Context applicationContext = getApplicationContext();
+
+            new Thread( () -> {
+                utteranceCacheDir = new File( applicationContext.getCacheDir(), UTTERANCE_CACHE_DIR_NAME );
+
+                final BlockingQueue<Integer> initStatus = new ArrayBlockingQueue<>( 1 );
+
+                try {
+                    final int status;
+
+                    try ( final StartupTimeline.Phase ignored = startupTimeline.beginPhase( "TTS initialization" ) ) {
+                        final TextToSpeech engine = new TextToSpeech( applicationContext, initStatus::offer );
+
+                        status = initStatus.take();
+
+                        tts = engine;
+                        onTtsInit( status );
+                    }
+
+                    // The additional engine is not needed for the startup, so it is created once the main one is ready
+                    if ( status == TextToSpeech.SUCCESS && TtsEnginePool.isDoubleBufferingAllowed( applicationContext ) ) {
+                        ttsEnginePool.start( applicationContext, tts.getVoice(), Locale.getDefault(), utteranceProgressListener );
+                    }
+                }
+                catch ( final InterruptedException ex ) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "TtsInit" ).start();
+        }
         // -------------------------
 
-        super.onCreate( savedInstanceState );
+        // SDLActivity loads the native libraries and reads its preferences on the main thread, this is beyond our control
+        final StrictMode.ThreadPolicy startupPolicy = StrictMode.allowThreadDiskWrites();
 
-        if ( !HoMM2AssetManagement.isHoMM2AssetsPresent( externalFilesDir ) ) {
-            startActivity( new Intent( this, ToolsetActivity.class ) );
-            finish();
+        try ( final StartupTimeline.Phase ignored = startupTimeline.beginPhase( "SDLActivity initialization" ) ) {
+            super.onCreate( savedInstanceState );
+        }
+        finally {
+            StrictMode.setThreadPolicy( startupPolicy );
+        }
+
+        showSplash();
+
+        if ( isDebuggable ) {
+            showSpeechMetricsOverlay();
+
+            // The startup is complete, any disk access on the main thread is only reported from now on, since SDLActivity does not avoid it
+            StrictMode.setThreadPolicy( new StrictMode.ThreadPolicy.Builder().detectDiskReads().detectDiskWrites().penaltyLog().build() );
         }
     }
 
+    /**
+     * This method is called by SDL on its own thread right before the native code is started, so this is where the native code waits for the bundled
+     * assets to be extracted without blocking the main thread.
+     */
     @Override
-    public void onInit(int status) {
-        if (status == TextToSpeech.SUCCESS) {
-            // Настройка языка
-            int result = tts.setLanguage(Locale.getDefault());
-            if (result == TextToSpeech.LANG_MISSING_DATA || result == TextToSpeech.LANG_NOT_SUPPORTED) {
-                 Log.e("TTS", "Language not supported");
-            }
-
-            // Настройка аудио-атрибутов: Важно, чтобы голос шел как ACCESSIBILITY, 
-            // тогда Android может приглушать музыку игры во время речи (Audio Ducking)
-            AudioAttributes attrs = new AudioAttributes.Builder()
-                    .setUsage(AudioAttributes.USAGE_ASSISTANCE_ACCESSIBILITY)
-                    .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
-                    .build();
-            tts.setAudioAttributes(attrs);
-
-            tts.setPitch(1.0f);
-            tts.setSpeechRate(1.2f); // 1.2x оптимально для быстрого чтения
-            isTtsReady = true;
-            
-            // Тестовое сообщение
-            speakInternal("Accessibility initialized", TextToSpeech.QUEUE_FLUSH, 1.0f);
-        } else {
-            Log.e("TTS", "Initialization failed");
-        }
-    }
-
-    // --- УЛУЧШЕННЫЙ МЕТОД JNI (ТОЧКА ВХОДА) ---
+    protected String[] getArguments()
+    {
+        try ( final StartupTimeline.Phase ignored = startupTimeline.beginPhase( "Waiting for assets" ) ) {
+            assetsReadyLatch.await();
+        }
+        catch ( final InterruptedException ex ) {
+            Thread.currentThread().interrupt();
+        }
+
+        // The native code obtains the methods of this class it calls here rather than on the game thread while the game is running
+        registerGameActivity();
+
+        if ( readThroughAssetsRootDir != null ) {
+            registerBundledAssets( getAssets(), readThroughAssetsRootDir, readThroughAssetPaths );
+
+            if ( isAssetsPackPresent ) {
+                registerBundledAssetsPack( readThroughAssetsRootDir, ASSETS_PACK_PATH );
+            }
+        }
+
+        return super.getArguments();
+    }
+
     /**
-     * Вызывается из C++ (engine/tools.cpp).
-     * Поддерживает "Протокол префиксов":
-     * "+" в начале строки -> QUEUE_ADD (дочитать после текущего, для диалогов)
-     * "~" в начале строки -> Низкий питч (для врагов/опасности)
-     * Без префикса -> QUEUE_FLUSH (прервать и читать сразу, для навигации)
+     * This method is called by the native code on its own thread once the first frame has been rendered, which completes the startup.
      */
-    public static void sendToScreenReader(String rawText) {
-        if (rawText == null || rawText.trim().isEmpty()) return;
-
-        final String textToProcess = rawText;
-
-        uiHandler.post(new Runnable() {
-            @Override
-            public void run() {
-                if (!isTtsReady || tts == null) return;
-
-                String text = textToProcess;
-                int queueMode = TextToSpeech.QUEUE_FLUSH; // По умолчанию - ПРЕРЫВАТЬ (для быстрой реакции)
-                float pitch = 1.0f;
-
-                // 1. Парсинг префиксов
-                if (text.startsWith("+")) {
-                    queueMode = TextToSpeech.QUEUE_ADD;
-                    text = text.substring(1);
-                } else if (text.startsWith("~")) {
-                    pitch = 0.6f; // Низкий голос (Демонический/Враг)
-                    text = text.substring(1);
-                    // Для врагов лучше прерывать сразу
-                    queueMode = TextToSpeech.QUEUE_FLUSH; 
-                }
+    @SuppressWarnings( "unused" )
+    private static void onNativeFirstFrameRendered()
+    {
+        if ( !( mSingleton instanceof GameActivity ) ) {
+            return;
+        }
 
-                // 2. Умный Анти-спам
-                long currentTime = System.currentTimeMillis();
-                // Если текст совпадает с прошлым И прошло мало времени -> игнорируем
-                // НО: Если текст тот же, но прошло > 300мс, читаем снова (пользователь хочет перепроверить клетку)
-                if (text.equals(lastText) && (currentTime - lastSpeakTime < SPAM_THRESHOLD_MS)) {
-                    return; 
-                }
+        final GameActivity activity = (GameActivity)mSingleton;
 
-                lastText = text;
-                lastSpeakTime = currentTime;
+        activity.startupTimeline.mark( "Native first frame" );
 
-                speakInternal(text, queueMode, pitch);
+        new Thread( () -> {
+            try {
+                activity.startupTimeline.save( activity.startupReportsFile,
+                                               activity.getPackageManager().getPackageInfo( activity.getPackageName(), 0 ).versionName );
+            }
+            catch ( final Exception ex ) {
+                Log.e( "fheroes2", "Failed to save the startup report.", ex );
             }
-        });
+        } ).start();
     }
 
-    // Внутренний метод для непосредственной озвучки
-    private static void speakInternal(String text, int queueMode, float pitch) {
-        tts.setPitch(pitch);
-        
-        // Bundle для идентификации (помогает при отладке)
-        Bundle params = new Bundle();
-        params.putString(TextToSpeech.Engine.KEY_PARAM_UTTERANCE_ID, "f2_access");
+    private void showSplash()
+    {
+        if ( assetsReadyLatch.getCount() == 0 || mLayout == null ) {
+            return;
+        }
+
+        final RelativeLayout.LayoutParams params = new RelativeLayout.LayoutParams( ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT );
+        params.addRule( RelativeLayout.CENTER_IN_PARENT );
+
+        splashView = new ProgressBar( this );
 
-        tts.speak(text, queueMode, params, "f2_access");
-        
-        // Сбрасываем питч обратно после добавления в очередь, 
-        // чтобы следующее сообщение (если оно без префикса) было нормальным
-        if (pitch != 1.0f) {
-             // Небольшой хак: нам нужно вернуть питч, но speak - асинхронный.
-             // В идеале нужно использовать UtteranceProgressListener, но для простоты
-             // мы полагаемся на то, что setPitch применяется к следующему speak.
-             // В данном коде это безопасно, так как setPitch вызывается перед каждым speak.
+        mLayout.addView( splashView, params );
+    }
+
+    private void hideSplash()
+    {
+        if ( splashView == null ) {
+            return;
         }
-        
-        Log.d("fheroes2_tts", "Speak: [" + text + "] Mode: " + (queueMode == 0 ? "FLUSH" : "ADD"));
+
+        if ( mLayout != null ) {
+            mLayout.removeView( splashView );
+        }
+
+        splashView = null;
+    }
+
+    private void showSpeechMetricsOverlay()
+    {
+        if ( mLayout == null ) {
+            return;
+        }
+
+        final RelativeLayout.LayoutParams params = new RelativeLayout.LayoutParams( ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT );
+        params.addRule( RelativeLayout.ALIGN_PARENT_TOP );
+        params.addRule( RelativeLayout.ALIGN_PARENT_LEFT );
+
+        speechMetricsView = new TextView( this );
+        speechMetricsView.setTypeface( Typeface.MONOSPACE );
+        speechMetricsView.setTextSize( 10 );
+        speechMetricsView.setTextColor( Color.WHITE );
+        speechMetricsView.setBackgroundColor( 0x80000000 );
+
+        mLayout.addView( speechMetricsView, params );
+
+        updateSpeechMetricsOverlay();
+    }
+
+    private void updateSpeechMetricsOverlay()
+    {
+        if ( speechMetricsView == null ) {
+            return;
+        }
+
+        final String summary = speechMetrics.getSummary();
+
+        speechMetricsView.setText( summary );
+        speechMetricsView.setVisibility( summary.isEmpty() ? View.GONE : View.VISIBLE );
+        speechMetricsView.postDelayed( speechMetricsViewUpdater, SPEECH_METRICS_OVERLAY_UPDATE_INTERVAL_MS );
+    }
+
+    /**
+     * This method is called on the TTS initialization thread.
+     */
+    private static void onTtsInit( final int status )
+    {
+        if ( status != TextToSpeech.SUCCESS ) {
+            Log.e( "fheroes2", "Failed to initialize the TTS engine." );
+
+            // The failed engine is not reused, the initialization is started again once GameActivity is created next time
+            final TextToSpeech engine = tts;
+            tts = null;
+
+            if ( engine != null ) {
+                engine.shutdown();
+            }
+
+            isTtsInitStarted.set( false );
+
+            return;
+        }
+
+        final int result = tts.setLanguage( Locale.getDefault() );
+        if ( result == TextToSpeech.LANG_MISSING_DATA || result == TextToSpeech.LANG_NOT_SUPPORTED ) {
+            Log.e( "fheroes2", "Language is not supported by the TTS engine." );
+        }
+
+        // The speech is treated as an accessibility one, so Android can duck the game music while it is being spoken
+        final AudioAttributes audioAttributes = new AudioAttributes.Builder()
+                                                    .setUsage( AudioAttributes.USAGE_ASSISTANCE_ACCESSIBILITY )
+                                                    .setContentType( AudioAttributes.CONTENT_TYPE_SPEECH )
+                                                    .build();
+        tts.setAudioAttributes( audioAttributes );
+
+        tts.setOnUtteranceProgressListener( utteranceProgressListener );
+
+        if ( utteranceCache == null ) {
+            // Different voices of the same language sound differently, so the clips are keyed by the voice itself
+            final Voice voice = tts.getVoice();
+            final String voiceTag = voice != null ? voice.getName() : Locale.getDefault().toLanguageTag();
+
+            utteranceCache = new UtteranceCache( utteranceCacheDir, voiceTag, audioAttributes, utteranceId -> onUtteranceFinished( utteranceId, true ) );
+        }
+
+        // The first utterance makes the TTS engine load the voice, so it is spoken silently, and the messages that have arrived in the meantime are
+        // spoken only once it is finished
+        final Bundle params = new Bundle();
+        params.putString( TextToSpeech.Engine.KEY_PARAM_UTTERANCE_ID, TTS_WARM_UP_UTTERANCE_ID );
+        params.putFloat( TextToSpeech.Engine.KEY_PARAM_VOLUME, 0.0f );
+
+        if ( tts.speak( "Accessibility initialized", TextToSpeech.QUEUE_FLUSH, params, TTS_WARM_UP_UTTERANCE_ID ) != TextToSpeech.SUCCESS ) {
+            Log.w( "fheroes2", "Failed to warm up the TTS engine." );
+
+            onTtsReady();
+        }
+    }
+
+    private static void onTtsReady()
+    {
+        isTtsReady = true;
+
+        speechDispatcher.wakeUp();
+    }
+
+    /**
+     * This method is called on one of the TTS engine threads, or on the thread of the utterance cache.
+     */
+    private static void onUtteranceFinished( final String utteranceId, final boolean isSuccessful )
+    {
+        if ( TTS_WARM_UP_UTTERANCE_ID.equals( utteranceId ) ) {
+            onTtsReady();
+            return;
+        }
+
+        final UtteranceCache cache = utteranceCache;
+
+        // Completion of the synthesis of a cached clip allows to start the next one
+        if ( cache != null && cache.onSynthesisFinished( utteranceId, isSuccessful ) ) {
+            speechDispatcher.wakeUp();
+            return;
+        }
+
+        speechMetrics.onUtteranceFinished( utteranceId );
+
+        if ( speechScheduler.onUtteranceFinished( utteranceId ) ) {
+            speechDispatcher.wakeUp();
+        }
+    }
+
+    /**
+     * This method is called by the native speech thread (see SpeakAccessibility() in tools.cpp) and only passes the message to the speech
+     * dispatcher thread. The attributes of the message are described in SpeechScheduler.
+     *
+     * @param emitTime System.nanoTime() compatible time when the message was emitted by the native code, 0 if unknown
+     */
+    public static void speakAccessibility( final String text, final int attributes, final long emitTime )
+    {
+        if ( text == null || text.trim().isEmpty() ) {
+            return;
+        }
+
+        if ( !speechDispatcher.post( text, attributes, emitTime ) ) {
+            speechMetrics.onDropped( SpeechScheduler.getChannel( attributes ), SpeechMetrics.Drop.RING_FULL );
+
+            Log.w( "fheroes2", "Screen reader message has been dropped." );
+        }
+    }
+
+    /**
+     * This method is called by the native speech thread (see SetAccessibilitySpeechRate() in tools.cpp) once the game configuration is loaded.
+     *
+     * @param preferredRatePercent speech rate used when there is no backlog, in percents of the normal rate
+     * @param maxRatePercent speech rate used when the backlog is large, in percents of the normal rate
+     */
+    public static void setSpeechRate( final int preferredRatePercent, final int maxRatePercent )
+    {
+        speechRateController.setRates( preferredRatePercent / 100.0f, maxRatePercent / 100.0f );
+    }
+
+    /**
+     * This method is called by the native speech thread (see SetAccessibilitySpeechLanguage() in tools.cpp) every time the game language is set.
+     * The dictionary itself is loaded on the first use on the speech dispatcher thread.
+     *
+     * @param language abbreviation of the game language, an empty string means English
+     */
+    public static void setSpeechLanguage( final String language )
+    {
+        final Context context = speechDictionaryContext;
+        if ( context == null || language.equals( speechLanguage ) ) {
+            return;
+        }
+
+        speechLanguage = language;
+
+        final Configuration configuration = new Configuration( context.getResources().getConfiguration() );
+        configuration.setLocale( language.isEmpty() ? Locale.ENGLISH : Locale.forLanguageTag( language ) );
+
+        speechNormalizer = new SpeechNormalizer( context.createConfigurationContext( configuration ).getResources(), R.raw.speech_dictionary );
+    }
+
+    /**
+     * Legacy entry point, which encodes the attributes of the message as the text prefix: "+" means a dialog message that doesn't interrupt the
+     * current one, "~" means a danger message, otherwise it is a status bar message. Should be called by the same thread as speakAccessibility().
+     */
+    public static void sendToScreenReader( final String rawText )
+    {
+        if ( rawText == null ) {
+            return;
+        }
+
+        if ( rawText.startsWith( "+" ) ) {
+            final int attributes = SpeechScheduler.packAttributes( SpeechScheduler.Channel.DIALOG, SpeechScheduler.FLAG_NO_INTERRUPT );
+
+            speakAccessibility( rawText.substring( 1 ), attributes, 0 );
+        }
+        else if ( rawText.startsWith( "~" ) ) {
+            speakAccessibility( rawText.substring( 1 ), SpeechScheduler.packAttributes( SpeechScheduler.Channel.DANGER, 0 ), 0 );
+        }
+        else {
+            speakAccessibility( rawText, SpeechScheduler.packAttributes( SpeechScheduler.Channel.STATUS_BAR, 0 ), 0 );
+        }
+    }
+
+    /**
+     * This method is called on the speech dispatcher thread.
+     */
+    private static void handleScreenReaderMessage( final String text, final int attributes, final long emitTime, final long postTime )
+    {
+        // Messages are normalized before they are split into sentences and cached, so the same spoken text always has the same clip
+        final SpeechNormalizer normalizer = speechNormalizer;
+        final String normalizedText = normalizer != null ? normalizer.normalize( text ) : text;
+
+        // Messages that arrive before the TTS engine is ready are buffered by the scheduler
+        speechScheduler.enqueue( normalizedText, attributes, emitTime, postTime );
+    }
+
+    /**
+     * Speaks the given text, interrupting the current utterance. The pitch and the rate are set before each utterance, so they affect only this
+     * utterance.
+     */
+    private static int speakInternal( final String text, final float pitch, final float rate, final String utteranceId )
+    {
+        if ( !isTtsReady || tts == null ) {
+            return SpeechScheduler.Speaker.RESULT_FAILED;
+        }
+
+        final UtteranceCache cache = utteranceCache;
+        if ( cache != null && cache.play( text, pitch, rate, utteranceId ) ) {
+            // The clip replaces the current utterance (if any) as well as the background synthesis
+            tts.stop();
+            return SpeechScheduler.Speaker.RESULT_CACHED;
+        }
+
+        return speakWithTts( text, pitch, rate, utteranceId ) ? SpeechScheduler.Speaker.RESULT_SYNTHESIZED : SpeechScheduler.Speaker.RESULT_FAILED;
+    }
+
+    private static boolean speakWithTts( final String text, final float pitch, final float rate, final String utteranceId )
+    {
+        tts.setPitch( pitch );
+        tts.setSpeechRate( rate );
+
+        final Bundle params = new Bundle();
+        params.putString( TextToSpeech.Engine.KEY_PARAM_UTTERANCE_ID, utteranceId );
+
+        return tts.speak( text, TextToSpeech.QUEUE_FLUSH, params, utteranceId ) == TextToSpeech.SUCCESS;
     }
 
     // --- PASS-THROUGH TOUCH EVENTS ---
@@ -181,64 +638,281 @@ public final class GameActivity extends SDLActivity implements TextToSpeech.OnIn
         return super.dispatchTouchEvent(event);
     }
 
+    @Override
+    public void onTrimMemory( final int level )
+    {
+        super.onTrimMemory( level );
+
+        // The UI_HIDDEN level only means that the game is no longer visible
+        if ( level < ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW || level == ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN ) {
+            return;
+        }
+
+        new Thread( () -> {
+            if ( !ttsEnginePool.release() ) {
+                return;
+            }
+
+            Log.i( "fheroes2", "The system is low on memory, the additional TTS engine has been shut down." );
+
+            final UtteranceCache cache = utteranceCache;
+            if ( cache != null ) {
+                cache.cancelPrefetch();
+            }
+        } ).start();
+    }
+
     @Override
     protected void onDestroy() {
         if (tts != null) {
             tts.stop();
             tts.shutdown();
         }
+
+        final UtteranceCache cache = utteranceCache;
+        if ( cache != null ) {
+            cache.stopPlayback();
+        }
+
+        if ( speechMetricsView != null ) {
+            speechMetricsView.removeCallbacks( speechMetricsViewUpdater );
+            speechMetricsView = null;
+        }
+
         super.onDestroy();
-        // Убираем System.exit(0), это плохая практика в Android, 
-        // SDLActivity сам должен корректно закрываться. 
-        // Но если это требование движка fheroes2, можно раскомментировать.
-        System.exit( 0 ); 
+
+        final Context applicationContext = getApplicationContext();
+        final File metricsFile = speechMetricsFile;
+
+        // The global state of the engine is not reset on its shutdown, so the engine cannot be started again within the same process, and the
+        // process is terminated once the speech data is saved. The disk is accessed on a worker thread, so it doesn't block the main thread.
+        new Thread( () -> {
+            if ( cache != null ) {
+                cache.savePhrases();
+            }
+
+            // The activity may be destroyed before the path of this file is even known
+            if ( metricsFile != null ) {
+                try {
+                    speechMetrics.save( metricsFile );
+                }
+                catch ( final IOException ex ) {
+                    Log.e( "fheroes2", "Failed to save the speech metrics.", ex );
+                }
+            }
+
+            GameSession.onFinished( applicationContext );
+
+            System.exit( 0 );
+        } ).start();
     }
 
-    // --- ASSET MANAGEMENT (NO CHANGES) ---
+    // --- ASSET MANAGEMENT ---
+    /**
+     * Extracts only those assets that have been added or changed since the previous extraction (according to the digest of assets), and deletes
+     * the assets that are no longer present. If there is no information about the previous extraction, all assets are extracted. The digest of
+     * assets lists every bundled asset, so it is also used to enumerate them instead of walking the asset directories. Assets that are read
+     * directly from the APK are not extracted, they are just registered for the native code.
+     */
     @SuppressWarnings( "SameParameterValue" )
-    private boolean isAssetsDigestChanged( final String assetsDigestPath, final File localDigestFile )
+    private void syncAssets( final String assetsDigestPath, final File localDigestFile, final File dstDir ) throws IOException
     {
-        try ( final InputStream assetsDigestStream = getAssets().open( assetsDigestPath ) ) {
+        final byte[] assetsDigest;
+        final AssetsDigest digest;
+
+        AssetsDigest localDigest = null;
+
+        try ( final StartupTimeline.Phase ignored = startupTimeline.beginPhase( "Digest check" ) ) {
+            try ( final InputStream assetsDigestStream = getAssets().open( assetsDigestPath ) ) {
+                assetsDigest = IOUtils.toByteArray( assetsDigestStream );
+            }
+
+            digest = AssetsDigest.parse( assetsDigest );
+
+            final List<String> readThroughPaths = new ArrayList<>();
+
+            for ( final String path : digest.getPaths() ) {
+                if ( path.equals( ASSETS_PACK_PATH ) ) {
+                    isAssetsPackPresent = true;
+                }
+                else if ( isReadThroughAsset( path ) ) {
+                    readThroughPaths.add( path );
+                }
+            }
+
+            readThroughAssetsRootDir = dstDir.getAbsolutePath();
+            readThroughAssetPaths = readThroughPaths.toArray( new String[0] );
+
             try ( final InputStream localDigestStream = Files.newInputStream( localDigestFile.toPath() ) ) {
-                if ( Arrays.equals( IOUtils.toByteArray( assetsDigestStream ), IOUtils.toByteArray( localDigestStream ) ) ) {
-                    return false;
+                final byte[] localDigestBytes = IOUtils.toByteArray( localDigestStream );
+                if ( Arrays.equals( assetsDigest, localDigestBytes ) ) {
+                    return;
                 }
+
                 Log.i( "fheroes2", "Digest of assets has been changed." );
-            } catch ( final Exception ex ) {
+
+                localDigest = AssetsDigest.parse( localDigestBytes );
+            }
+            catch ( final Exception ex ) {
                 Log.i( "fheroes2", "Failed to access the local digest.", ex );
             }
-        } catch ( final Exception ex ) {
-            Log.e( "fheroes2", "Failed to access the digest of assets.", ex );
         }
-        return true;
+
+        final List<String> pathsToExtract = new ArrayList<>();
+
+        try ( final StartupTimeline.Phase ignored = startupTimeline.beginPhase( "Asset enumeration" ) ) {
+            // Previously extracted copies of these assets are no longer used
+            for ( final String path : readThroughAssetPaths ) {
+                Files.deleteIfExists( new File( dstDir, path ).toPath() );
+            }
+
+            if ( localDigest == null ) {
+                for ( final String path : digest.getPaths() ) {
+                    if ( !isReadThroughAsset( path ) ) {
+                        pathsToExtract.add( path );
+                    }
+                }
+            }
+            else {
+                for ( final String path : digest.getRemovedPaths( localDigest ) ) {
+                    Files.deleteIfExists( new File( dstDir, path ).toPath() );
+                }
+
+                final Set<String> changedPaths = new HashSet<>( digest.getChangedPaths( localDigest ) );
+
+                Log.i( "fheroes2", String.format( "%d of %d assets have been changed.", changedPaths.size(), digest.getPaths().size() ) );
+
+                for ( final String path : digest.getPaths() ) {
+                    if ( isReadThroughAsset( path ) ) {
+                        continue;
+                    }
+
+                    // Unchanged assets are extracted only if they are missing for some reason
+                    if ( changedPaths.contains( path ) || !( new File( dstDir, path ) ).exists() ) {
+                        pathsToExtract.add( path );
+                    }
+                }
+            }
+        }
+
+        final String extractionPhaseName = String.format( Locale.ROOT, "Asset extraction (%d files)", pathsToExtract.size() );
+
+        try ( final StartupTimeline.Phase ignored = startupTimeline.beginPhase( extractionPhaseName ) ) {
+            extractAssets( pathsToExtract, dstDir );
+        }
+
+        Files.write( localDigestFile.toPath(), assetsDigest );
     }
 
-    private void extractAssets( final String srcPath, final File dstDir ) throws IOException
+    private static boolean isReadThroughAsset( final String path )
     {
-        for ( final String path : getAssetsPaths( srcPath ) ) {
-            try ( final InputStream in = getAssets().open( path ) ) {
-                final File outFile = new File( dstDir, path );
-                final File outFileDir = outFile.getParentFile();
-                if ( outFileDir != null ) Files.createDirectories( outFileDir.toPath() );
-                try ( final OutputStream out = Files.newOutputStream( outFile.toPath() ) ) {
-                    IOUtils.copy( in, out );
-                }
+        if ( path.equals( ASSETS_PACK_PATH ) ) {
+            return true;
+        }
+
+        for ( final String dir : READ_THROUGH_ASSET_DIRS ) {
+            if ( path.startsWith( dir ) ) {
+                return true;
             }
         }
+
+        return false;
+    }
+
+    /**
+     * Extracts the given assets in parallel, most of them are small files, so the extraction time is dominated by per-file overhead.
+     */
+    private void extractAssets( final List<String> paths, final File dstDir ) throws IOException
+    {
+        if ( paths.isEmpty() ) {
+            return;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool( Math.min( Runtime.getRuntime().availableProcessors(), MAX_ASSET_EXTRACTION_THREADS ) );
+
+        try {
+            final List<Future<Void>> futures = new ArrayList<>();
+
+            for ( final String path : paths ) {
+                futures.add( executor.submit( () -> {
+                    extractAsset( path, dstDir );
+                    return null;
+                } ) );
+            }
+
+            for ( final Future<Void> future : futures ) {
+                future.get();
+            }
+        }
+        catch ( final ExecutionException ex ) {
+            final Throwable cause = ex.getCause();
+            if ( cause instanceof IOException ) {
+                throw (IOException)cause;
+            }
+
+            throw new IOException( cause );
+        }
+        catch ( final InterruptedException ex ) {
+            Thread.currentThread().interrupt();
+
+            throw new IOException( ex );
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void extractAsset( final String path, final File dstDir ) throws IOException
+    {
+        StartupTimeline.beginTraceSection( "Extract " + path );
+
+        try {
+            extractAssetImpl( path, dstDir );
+        }
+        finally {
+            StartupTimeline.endTraceSection();
+        }
     }
 
-    private List<String> getAssetsPaths( final String path ) throws IOException
+    private void extractAssetImpl( final String path, final File dstDir ) throws IOException
     {
-        final List<String> result = new ArrayList<>();
-        final String[] assets = getAssets().list( path );
-        if ( assets == null ) return result;
-        if ( assets.length == 0 ) {
-            result.add( path );
-            return result;
+        final File outFile = new File( dstDir, path );
+        final File outFileDir = outFile.getParentFile();
+        if ( outFileDir != null ) Files.createDirectories( outFileDir.toPath() );
+
+        final AssetFileDescriptor assetFd;
+
+        try {
+            assetFd = getAssets().openFd( path );
         }
-        for ( final String asset : assets ) {
-            result.addAll( getAssetsPaths( path + File.separator + asset ) );
+        catch ( final FileNotFoundException ex ) {
+            // This asset is compressed, so it has to be inflated
+            try ( final InputStream in = getAssets().open( path ); final OutputStream out = Files.newOutputStream( outFile.toPath() ) ) {
+                IOUtils.copy( in, out );
+            }
+
+            return;
+        }
+
+        // This asset is stored uncompressed in the APK, so its bytes are copied directly from the APK to the destination file
+        try ( final AssetFileDescriptor fd = assetFd; final FileInputStream in = new FileInputStream( fd.getFileDescriptor() );
+              final FileChannel inChannel = in.getChannel();
+              final FileChannel outChannel = FileChannel.open( outFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                               StandardOpenOption.TRUNCATE_EXISTING ) ) {
+            final long startOffset = fd.getStartOffset();
+            final long length = fd.getLength();
+
+            long transferred = 0;
+
+            // The file descriptor refers to the whole APK file, so the positional transferTo() is used with the offset of the asset within the APK
+            while ( transferred < length ) {
+                final long count = inChannel.transferTo( startOffset + transferred, length - transferred, outChannel );
+                if ( count <= 0 ) {
+                    throw new IOException( String.format( "Failed to extract %s: unexpected end of file", path ) );
+                }
+
+                transferred += count;
+            }
         }
-        return result;
     }
 }
@@ -0,0 +1,174 @@
+/***************************************************************************
+ *   fheroes2: https://github.com/ihhub/fheroes2                           *
+ *   Copyright (C) 2025                                                    *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   This program is distributed in the hope that it will be useful,       *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with this program; if not, write to the                         *
+ *   Free Software Foundation, Inc.,                                       *
+ *   59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.             *
+ ***************************************************************************/
+
+package org.fheroes2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.util.Log;
+
+/**
+ * Keeps track of whether the game process is running a game session, i.e. whether GameActivity exists (even in the background), or the process is
+ * just finishing after the end of the game. The game process runs separately from the Toolset, so the session is marked by a file containing the
+ * PID of the game process, which is created once GameActivity is created and deleted once it is destroyed.
+ */
+final class GameSession
+{
+    // Should be kept in sync with the android:process attribute of GameActivity in AndroidManifest.xml
+    private static final String GAME_PROCESS_NAME_SUFFIX = ":GameActivityProcess";
+
+    private static final String MARKER_FILE_NAME = "game_session";
+
+    // The marker file is created and deleted in the same order as GameActivity instances are created and destroyed
+    private static final ExecutorService markerExecutor = Executors.newSingleThreadExecutor();
+
+    private GameSession()
+    {
+        throw new IllegalStateException( "Instantiation is not allowed" );
+    }
+
+    /**
+     * Should be called by the game process once GameActivity is created. Can be called on any thread, the disk is accessed on a worker thread.
+     */
+    static void onStarted( final Context context )
+    {
+        final Context applicationContext = context.getApplicationContext();
+        final int pid = android.os.Process.myPid();
+
+        markerExecutor.execute( () -> {
+            try {
+                Files.write( getMarkerFile( applicationContext ).toPath(), String.valueOf( pid ).getBytes( StandardCharsets.UTF_8 ) );
+            }
+            catch ( final IOException ex ) {
+                Log.e( "fheroes2", "Failed to mark the start of the game session.", ex );
+            }
+        } );
+    }
+
+    /**
+     * Should be called by the game process once GameActivity is destroyed. Waits until the end of the session is marked, so it should not be called
+     * on the main thread.
+     */
+    static void onFinished( final Context context )
+    {
+        final Context applicationContext = context.getApplicationContext();
+
+        final Future<?> result = markerExecutor.submit( () -> {
+            try {
+                Files.deleteIfExists( getMarkerFile( applicationContext ).toPath() );
+            }
+            catch ( final IOException ex ) {
+                Log.e( "fheroes2", "Failed to mark the end of the game session.", ex );
+            }
+        } );
+
+        try {
+            result.get();
+        }
+        catch ( final ExecutionException ex ) {
+            Log.e( "fheroes2", "Failed to mark the end of the game session.", ex );
+        }
+        catch ( final InterruptedException ex ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return true if the game process is running and has a game session, which may have unsaved progress
+     */
+    static boolean isActive( final Context context )
+    {
+        final int pid;
+
+        try {
+            final File markerFile = getMarkerFile( context );
+            if ( !markerFile.exists() ) {
+                return false;
+            }
+
+            pid = Integer.parseInt( new String( Files.readAllBytes( markerFile.toPath() ), StandardCharsets.UTF_8 ).trim() );
+        }
+        catch ( final IOException | NumberFormatException ex ) {
+            Log.w( "fheroes2", "Failed to read the game session marker.", ex );
+            return false;
+        }
+
+        // The marker file is left behind if the game process is killed, so it is valid only if the process with this PID is still the game process
+        for ( final ActivityManager.RunningAppProcessInfo process : getGameProcesses( context ) ) {
+            if ( process.pid == pid ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Terminates the game process, if it is running. It should be done before the HoMM2 assets are replaced, because the running game keeps the
+     * HoMM2 assets opened and their data cached.
+     */
+    static void terminateGameProcess( final Context context )
+    {
+        for ( final ActivityManager.RunningAppProcessInfo process : getGameProcesses( context ) ) {
+            Log.i( "fheroes2", "Terminating the game process before installing HoMM2 assets." );
+
+            android.os.Process.killProcess( process.pid );
+        }
+    }
+
+    private static List<ActivityManager.RunningAppProcessInfo> getGameProcesses( final Context context )
+    {
+        final List<ActivityManager.RunningAppProcessInfo> result = new ArrayList<>();
+
+        final ActivityManager activityManager = (ActivityManager)context.getSystemService( Context.ACTIVITY_SERVICE );
+        if ( activityManager == null ) {
+            return result;
+        }
+
+        final List<ActivityManager.RunningAppProcessInfo> processes = activityManager.getRunningAppProcesses();
+        if ( processes == null ) {
+            return result;
+        }
+
+        for ( final ActivityManager.RunningAppProcessInfo process : processes ) {
+            if ( process.processName.equals( context.getPackageName() + GAME_PROCESS_NAME_SUFFIX ) ) {
+                result.add( process );
+            }
+        }
+
+        return result;
+    }
+
+    private static File getMarkerFile( final Context context )
+    {
+        return new File( context.getFilesDir(), MARKER_FILE_NAME );
+    }
+}
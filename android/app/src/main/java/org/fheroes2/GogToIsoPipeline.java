@@ -0,0 +1,195 @@
+/***************************************************************************
+ *   fheroes2: https://github.com/ihhub/fheroes2                           *
+ *   Copyright (C) 2025                                                    *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   This program is distributed in the hope that it will be useful,       *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with this program; if not, write to the                         *
+ *   Free Software Foundation, Inc.,                                       *
+ *   59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.             *
+ ***************************************************************************/
+
+package org.fheroes2;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import android.util.Log;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Converts HOMM2.GOG file to ISO format using three stages running on separate threads: reading (and possibly inflating) the source stream, stripping
+ * the headers of CD sectors and writing the result. The stages exchange chunks of data through bounded queues, and the chunks themselves are taken from
+ * fixed-size pools, so a slow stage throttles the faster ones without any additional memory allocations.
+ */
+final class GogToIsoPipeline
+{
+    private static final int GOG_SECTOR_SIZE = 2352;
+    private static final int ISO_SECTOR_SIZE = 2048;
+
+    private static final int SECTORS_PER_CHUNK = 64;
+    // Number of chunks in each pool, it also limits the number of chunks waiting in the queue between two stages
+    private static final int CHUNKS_PER_POOL = 4;
+
+    private static final class Chunk
+    {
+        private final byte[] data;
+        private int size = 0;
+
+        private Chunk( final int capacity )
+        {
+            data = new byte[capacity];
+        }
+    }
+
+    // Marks the end of the stream
+    private static final Chunk EOF_CHUNK = new Chunk( 0 );
+
+    private final BlockingQueue<Chunk> gogChunkPool = new ArrayBlockingQueue<>( CHUNKS_PER_POOL );
+    private final BlockingQueue<Chunk> isoChunkPool = new ArrayBlockingQueue<>( CHUNKS_PER_POOL );
+
+    private final BlockingQueue<Chunk> gogChunkQueue = new ArrayBlockingQueue<>( CHUNKS_PER_POOL + 1 );
+    private final BlockingQueue<Chunk> isoChunkQueue = new ArrayBlockingQueue<>( CHUNKS_PER_POOL + 1 );
+
+    private GogToIsoPipeline()
+    {
+        for ( int i = 0; i < CHUNKS_PER_POOL; ++i ) {
+            gogChunkPool.add( new Chunk( GOG_SECTOR_SIZE * SECTORS_PER_CHUNK ) );
+            isoChunkPool.add( new Chunk( ISO_SECTOR_SIZE * SECTORS_PER_CHUNK ) );
+        }
+    }
+
+    static void convert( final InputStream gogStream, final OutputStream isoStream ) throws IOException
+    {
+        ( new GogToIsoPipeline() ).run( gogStream, isoStream );
+    }
+
+    private void run( final InputStream gogStream, final OutputStream isoStream ) throws IOException
+    {
+        final ExecutorService executor = Executors.newFixedThreadPool( 3 );
+        final CompletionService<Void> completionService = new ExecutorCompletionService<>( executor );
+
+        try {
+            completionService.submit( () -> {
+                readGogChunks( gogStream );
+                return null;
+            } );
+            completionService.submit( () -> {
+                convertChunks();
+                return null;
+            } );
+            completionService.submit( () -> {
+                writeIsoChunks( isoStream );
+                return null;
+            } );
+
+            // Wait for the stages in the order of their completion, so that a failure of any stage is noticed immediately. In this case, the remaining
+            // stages, which may be waiting for chunks that will never arrive, are interrupted by shutdownNow() below.
+            for ( int i = 0; i < 3; ++i ) {
+                completionService.take().get();
+            }
+        }
+        catch ( final ExecutionException ex ) {
+            final Throwable cause = ex.getCause();
+            if ( cause instanceof IOException ) {
+                throw (IOException)cause;
+            }
+
+            throw new IOException( cause );
+        }
+        catch ( final InterruptedException ex ) {
+            Thread.currentThread().interrupt();
+
+            throw new IOException( ex );
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void readGogChunks( final InputStream gogStream ) throws IOException, InterruptedException
+    {
+        while ( true ) {
+            final Chunk chunk = gogChunkPool.take();
+
+            chunk.size = IOUtils.read( gogStream, chunk.data );
+
+            // The chunk is only partially filled at the end of the stream
+            if ( chunk.size < chunk.data.length ) {
+                if ( chunk.size > 0 ) {
+                    gogChunkQueue.put( chunk );
+                }
+
+                break;
+            }
+
+            gogChunkQueue.put( chunk );
+        }
+
+        gogChunkQueue.put( EOF_CHUNK );
+    }
+
+    private void convertChunks() throws InterruptedException
+    {
+        while ( true ) {
+            final Chunk gogChunk = gogChunkQueue.take();
+            if ( gogChunk == EOF_CHUNK ) {
+                break;
+            }
+
+            final Chunk isoChunk = isoChunkPool.take();
+
+            final int sectorsCount = gogChunk.size / GOG_SECTOR_SIZE;
+
+            for ( int i = 0; i < sectorsCount; ++i ) {
+                final int gogSectorOffset = i * GOG_SECTOR_SIZE;
+                final int headerSize = gogChunk.data[gogSectorOffset + 15] == 2 ? 24 : 16;
+
+                System.arraycopy( gogChunk.data, gogSectorOffset + headerSize, isoChunk.data, i * ISO_SECTOR_SIZE, ISO_SECTOR_SIZE );
+            }
+
+            isoChunk.size = sectorsCount * ISO_SECTOR_SIZE;
+
+            if ( gogChunk.size % GOG_SECTOR_SIZE != 0 ) {
+                Log.w( "fheroes2", "The last chunk of the GOG file was ignored due to the wrong size." );
+            }
+
+            gogChunkPool.put( gogChunk );
+            isoChunkQueue.put( isoChunk );
+        }
+
+        isoChunkQueue.put( EOF_CHUNK );
+    }
+
+    private void writeIsoChunks( final OutputStream isoStream ) throws IOException, InterruptedException
+    {
+        while ( true ) {
+            final Chunk isoChunk = isoChunkQueue.take();
+            if ( isoChunk == EOF_CHUNK ) {
+                break;
+            }
+
+            isoStream.write( isoChunk.data, 0, isoChunk.size );
+
+            isoChunkPool.put( isoChunk );
+        }
+    }
+}
@@ -21,16 +21,31 @@
 package org.fheroes2;
 
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.DocumentsContract;
 import android.util.Log;
 
 import org.apache.commons.io.IOUtils;
@@ -45,24 +60,101 @@ final class HoMM2AssetManagement
         throw new IllegalStateException( "Instantiation is not allowed" );
     }
 
+    /**
+     * Tracks the progress of the extraction and allows it to be resumed after an interruption. The methods of this interface may be called from multiple
+     * threads concurrently.
+     */
+    interface ExtractionObserver
+    {
+        void onTotalBytesDetermined( final long totalBytes );
+
+        void onBytesProcessed( final long bytes );
+
+        /**
+         * @return true if the asset with the given key has already been extracted during a previous attempt and should be skipped
+         */
+        boolean isAssetExtracted( final String key );
+
+        void onAssetExtracted( final String key ) throws IOException;
+    }
+
+    private static final class DocumentTreeFile
+    {
+        private final Uri uri;
+        private final File path;
+        private final long size;
+
+        private DocumentTreeFile( final Uri uri, final File path, final long size )
+        {
+            this.uri = uri;
+            this.path = path;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Reports the number of bytes read from the wrapped stream to the observer.
+     */
+    private static final class ObservedInputStream extends FilterInputStream
+    {
+        private final ExtractionObserver observer;
+
+        private ObservedInputStream( final InputStream in, final ExtractionObserver observer )
+        {
+            super( in );
+
+            this.observer = observer;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            final int result = super.read();
+            if ( result >= 0 ) {
+                observer.onBytesProcessed( 1 );
+            }
+
+            return result;
+        }
+
+        @Override
+        public int read( final byte[] b, final int off, final int len ) throws IOException
+        {
+            final int result = super.read( b, off, len );
+            if ( result > 0 ) {
+                observer.onBytesProcessed( result );
+            }
+
+            return result;
+        }
+
+        @Override
+        public long skip( final long n ) throws IOException
+        {
+            final long result = super.skip( n );
+            if ( result > 0 ) {
+                observer.onBytesProcessed( result );
+            }
+
+            return result;
+        }
+    }
+
     static boolean isHoMM2AssetsPresent( final File externalFilesDir )
     {
         return ( new File( externalFilesDir, "data" + File.separator + "heroes2.agg" ) ).exists();
     }
 
     /**
-     * @return true if at least one asset was found and extracted, otherwise returns false
+     * Assets that have already been extracted according to the observer are skipped, but the ZIP stream still has to be read from the beginning.
+     *
+     * @return true if at least one asset was found and extracted (including assets extracted during a previous attempt), otherwise returns false
      */
-    static boolean extractHoMM2AssetsFromZip( final File externalFilesDir, final File cacheDir, final InputStream zipStream ) throws IOException
+    static boolean extractHoMM2AssetsFromZip( final File externalFilesDir, final File cacheDir, final InputStream zipStream, final ExtractionObserver observer )
+        throws IOException
     {
         // It is allowed to extract only files located in these subdirectories
-        final Set<String> allowedSubdirNames = new HashSet<>();
-        allowedSubdirNames.add( "anim" );
-        // ANIM2 directory is used in the Russian HoMM2 localization made by Buka
-        allowedSubdirNames.add( "anim2" );
-        allowedSubdirNames.add( "data" );
-        allowedSubdirNames.add( "maps" );
-        allowedSubdirNames.add( "music" );
+        final Set<String> allowedSubdirNames = getHoMM2AssetSubdirNames();
 
         final Set<File> allowedSubdirs = new HashSet<>();
         for ( String name : allowedSubdirNames ) {
@@ -71,7 +163,7 @@ final class HoMM2AssetManagement
 
         boolean result = false;
 
-        try ( final ZipInputStream zin = new ZipInputStream( zipStream ) ) {
+        try ( final ZipInputStream zin = new ZipInputStream( new ObservedInputStream( zipStream, observer ) ) ) {
             for ( ZipEntry zEntry = zin.getNextEntry(); zEntry != null; zEntry = zin.getNextEntry() ) {
                 // No need to extract empty directories
                 if ( zEntry.isDirectory() ) {
@@ -82,14 +174,23 @@ final class HoMM2AssetManagement
 
                 // CD image from GOG
                 if ( zEntryFile.getName().toLowerCase( Locale.ROOT ).equals( "homm2.gog" ) ) {
+                    if ( observer.isAssetExtracted( zEntry.getName() ) ) {
+                        result = true;
+
+                        continue;
+                    }
+
                     final File isoFile = new File( cacheDir, "homm2.iso" );
 
                     try {
                         try ( final OutputStream iso = Files.newOutputStream( isoFile.toPath() ) ) {
-                            gogToISO( zin, iso );
+                            GogToIsoPipeline.convert( zin, iso );
                         }
 
                         final boolean res = extractAnimationsFromISO( externalFilesDir, isoFile );
+                        if ( res ) {
+                            observer.onAssetExtracted( zEntry.getName() );
+                        }
 
                         result = result || res;
                     }
@@ -112,13 +213,10 @@ final class HoMM2AssetManagement
                     continue;
                 }
 
-                final File outFileDir = outFile.getParentFile();
-                if ( outFileDir != null ) {
-                    Files.createDirectories( outFileDir.toPath() );
-                }
+                if ( !observer.isAssetExtracted( assetSubpath ) ) {
+                    copyHoMM2Asset( zin, outFile );
 
-                try ( final OutputStream out = Files.newOutputStream( outFile.toPath() ) ) {
-                    IOUtils.copy( zin, out );
+                    observer.onAssetExtracted( assetSubpath );
                 }
 
                 result = true;
@@ -128,6 +226,117 @@ final class HoMM2AssetManagement
         return result;
     }
 
+    /**
+     * Imports assets from the directory tree of an existing HoMM2 installation selected using ACTION_OPEN_DOCUMENT_TREE. Each directory of the tree is
+     * enumerated using a single query to the document provider, and the files of each asset subdirectory (ANIM, DATA, MAPS, MUSIC) are copied in parallel.
+     *
+     * Assets that have already been imported according to the observer are skipped.
+     *
+     * @return true if at least one asset was found and imported (including assets imported during a previous attempt), otherwise returns false
+     */
+    static boolean importHoMM2AssetsFromDocumentTree( final File externalFilesDir, final Uri treeUri, final ContentResolver contentResolver,
+                                                      final ExtractionObserver observer ) throws IOException
+    {
+        // It is allowed to import only files located in these subdirectories
+        final Set<String> allowedSubdirNames = getHoMM2AssetSubdirNames();
+
+        final Set<File> allowedSubdirs = new HashSet<>();
+        for ( String name : allowedSubdirNames ) {
+            allowedSubdirs.add( new File( externalFilesDir, name ).getCanonicalFile() );
+        }
+
+        // Files to import (with paths relative to the external files dir), grouped by the name of the asset subdirectory they belong to
+        final Map<String, List<DocumentTreeFile>> filesBySubdir = new HashMap<>();
+
+        boolean result = false;
+        long totalBytes = 0;
+
+        for ( final DocumentTreeFile file : listDocumentTreeFiles( treeUri, contentResolver ) ) {
+            final String assetSubpath = getHoMM2AssetSubpath( file.path, allowedSubdirNames );
+            // No need to import the file if its path does not contain any of the allowed subdirectories
+            if ( assetSubpath.isEmpty() ) {
+                continue;
+            }
+
+            final File outFile = new File( externalFilesDir, assetSubpath );
+            // Check the path for various trickery, such as 'data/../../../bin/file'
+            if ( !isValidHoMM2AssetPath( outFile, allowedSubdirs ) ) {
+                continue;
+            }
+
+            result = true;
+            totalBytes += file.size;
+
+            if ( observer.isAssetExtracted( assetSubpath ) ) {
+                observer.onBytesProcessed( file.size );
+
+                continue;
+            }
+
+            final String subdirName = assetSubpath.substring( 0, assetSubpath.indexOf( File.separatorChar ) );
+
+            List<DocumentTreeFile> subdirFiles = filesBySubdir.get( subdirName );
+            if ( subdirFiles == null ) {
+                subdirFiles = new ArrayList<>();
+                filesBySubdir.put( subdirName, subdirFiles );
+            }
+
+            subdirFiles.add( new DocumentTreeFile( file.uri, new File( assetSubpath ), file.size ) );
+        }
+
+        observer.onTotalBytesDetermined( totalBytes );
+
+        if ( filesBySubdir.isEmpty() ) {
+            return result;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool( filesBySubdir.size() );
+
+        try {
+            final List<Future<Void>> futures = new ArrayList<>();
+
+            for ( final List<DocumentTreeFile> subdirFiles : filesBySubdir.values() ) {
+                futures.add( executor.submit( () -> {
+                    for ( final DocumentTreeFile file : subdirFiles ) {
+                        try ( final InputStream in = contentResolver.openInputStream( file.uri ) ) {
+                            if ( in == null ) {
+                                throw new IOException( String.format( "Unable to open %s", file.uri ) );
+                            }
+
+                            copyHoMM2Asset( new ObservedInputStream( in, observer ), new File( externalFilesDir, file.path.getPath() ) );
+                        }
+
+                        observer.onAssetExtracted( file.path.getPath() );
+                    }
+
+                    return null;
+                } ) );
+            }
+
+            for ( final Future<Void> future : futures ) {
+                future.get();
+            }
+        }
+        catch ( final ExecutionException ex ) {
+            final Throwable cause = ex.getCause();
+            if ( cause instanceof IOException ) {
+                throw (IOException)cause;
+            }
+
+            throw new IOException( cause );
+        }
+        catch ( final InterruptedException ex ) {
+            Thread.currentThread().interrupt();
+
+            throw new IOException( ex );
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        return true;
+    }
+
     /**
      * @return true if at least one animation was found and extracted, otherwise returns false
      */
@@ -165,22 +374,107 @@ final class HoMM2AssetManagement
                     continue;
                 }
 
-                final File outFileDir = outFile.getParentFile();
-                if ( outFileDir != null ) {
-                    Files.createDirectories( outFileDir.toPath() );
+                try ( final InputStream in = isoFileSystem.getInputStream( isoEntry ) ) {
+                    copyHoMM2Asset( in, outFile );
                 }
 
-                try ( final InputStream in = isoFileSystem.getInputStream( isoEntry ); final OutputStream out = Files.newOutputStream( outFile.toPath() ) ) {
-                    IOUtils.copy( in, out );
+                result = true;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the list of all files in the given document tree. The path of each file is relative to the root of the tree.
+     */
+    private static List<DocumentTreeFile> listDocumentTreeFiles( final Uri treeUri, final ContentResolver contentResolver ) throws IOException
+    {
+        final String[] projection
+            = new String[] { DocumentsContract.Document.COLUMN_DOCUMENT_ID, DocumentsContract.Document.COLUMN_DISPLAY_NAME, DocumentsContract.Document.COLUMN_MIME_TYPE,
+                             DocumentsContract.Document.COLUMN_SIZE };
+
+        final List<DocumentTreeFile> result = new ArrayList<>();
+
+        // Directories that are yet to be enumerated, the URI of each directory contains its document ID
+        final Queue<DocumentTreeFile> dirs = new ArrayDeque<>();
+        dirs.add( new DocumentTreeFile( DocumentsContract.buildDocumentUriUsingTree( treeUri, DocumentsContract.getTreeDocumentId( treeUri ) ), null, 0 ) );
+
+        while ( !dirs.isEmpty() ) {
+            final DocumentTreeFile dir = dirs.remove();
+            final String dirId = DocumentsContract.getDocumentId( dir.uri );
+
+            // The contents of the whole directory are fetched using a single query instead of accessing each file separately
+            try ( final Cursor cursor = contentResolver.query( DocumentsContract.buildChildDocumentsUriUsingTree( treeUri, dirId ), projection, null, null, null ) ) {
+                if ( cursor == null ) {
+                    throw new IOException( String.format( "Unable to list the contents of %s", dir.uri ) );
                 }
 
-                result = true;
+                while ( cursor.moveToNext() ) {
+                    final String documentId = cursor.getString( 0 );
+                    final File path = new File( dir.path, cursor.getString( 1 ) );
+                    final Uri uri = DocumentsContract.buildDocumentUriUsingTree( treeUri, documentId );
+
+                    if ( DocumentsContract.Document.MIME_TYPE_DIR.equals( cursor.getString( 2 ) ) ) {
+                        dirs.add( new DocumentTreeFile( uri, path, 0 ) );
+                    }
+                    else {
+                        // The size may be unknown
+                        result.add( new DocumentTreeFile( uri, path, cursor.isNull( 3 ) ? 0 : cursor.getLong( 3 ) ) );
+                    }
+                }
             }
         }
 
         return result;
     }
 
+    /**
+     * Copies the asset to the given file. AGG files are verified while being copied, and if the verification fails, the file is deleted.
+     */
+    private static void copyHoMM2Asset( final InputStream in, final File outFile ) throws IOException
+    {
+        final File outFileDir = outFile.getParentFile();
+        if ( outFileDir != null ) {
+            Files.createDirectories( outFileDir.toPath() );
+        }
+
+        if ( !outFile.getName().endsWith( ".agg" ) ) {
+            try ( final OutputStream out = Files.newOutputStream( outFile.toPath() ) ) {
+                IOUtils.copy( in, out );
+            }
+
+            return;
+        }
+
+        try ( final AggFileVerifyingOutputStream out = new AggFileVerifyingOutputStream( Files.newOutputStream( outFile.toPath() ) ) ) {
+            IOUtils.copy( in, out );
+
+            out.verify();
+
+            Log.i( "fheroes2", String.format( "SHA-256 of %s: %s", outFile.getName(), out.getSha256() ) );
+        }
+        catch ( final IOException ex ) {
+            // Do not leave a truncated or corrupted AGG file behind, otherwise the engine will try to use it
+            Files.deleteIfExists( outFile.toPath() );
+
+            throw new IOException( String.format( "Failed to extract %s: %s", outFile.getName(), ex.getMessage() ), ex );
+        }
+    }
+
+    private static Set<String> getHoMM2AssetSubdirNames()
+    {
+        final Set<String> result = new HashSet<>();
+        result.add( "anim" );
+        // ANIM2 directory is used in the Russian HoMM2 localization made by Buka
+        result.add( "anim2" );
+        result.add( "data" );
+        result.add( "maps" );
+        result.add( "music" );
+
+        return result;
+    }
+
     /**
      * Tries to truncate the given path to the shortest path starting from one of the allowed subdirectories,
      * for example 'foo/bar/data/zoo/file' -> 'data/zoo/file'.
@@ -218,44 +512,4 @@ final class HoMM2AssetManagement
 
         return false;
     }
-
-    /**
-     * Converts HOMM2.GOG file to ISO format
-     */
-    private static void gogToISO( final InputStream gogStream, final OutputStream isoStream ) throws IOException
-    {
-        final int chunkSize = 2352;
-        final byte[] chunk = new byte[chunkSize];
-
-        int chunkOffset = 0;
-
-        while ( true ) {
-            final int bytesRead = gogStream.read( chunk, chunkOffset, chunkSize - chunkOffset );
-
-            // EOF
-            if ( bytesRead < 0 ) {
-                break;
-            }
-
-            // Partial read
-            if ( chunkOffset + bytesRead != chunkSize ) {
-                chunkOffset += bytesRead;
-
-                continue;
-            }
-
-            chunkOffset = 0;
-
-            if ( chunk[15] == 2 ) {
-                isoStream.write( chunk, 24, 2048 );
-            }
-            else {
-                isoStream.write( chunk, 16, 2048 );
-            }
-        }
-
-        if ( chunkOffset != 0 ) {
-            Log.w( "fheroes2", "The last chunk of the GOG file was ignored due to the wrong size." );
-        }
-    }
 }
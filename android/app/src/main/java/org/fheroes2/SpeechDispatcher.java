@@ -0,0 +1,156 @@
+/***************************************************************************
+ *   fheroes2: https://github.com/ihhub/fheroes2                           *
+ *   Copyright (C) 2025                                                    *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   This program is distributed in the hope that it will be useful,       *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with this program; if not, write to the                         *
+ *   Free Software Foundation, Inc.,                                       *
+ *   59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.             *
+ ***************************************************************************/
+
+package org.fheroes2;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import android.util.Log;
+
+/**
+ * Delivers the messages for the screen reader to their handler on a dedicated thread, so that bursts of messages never delay the main thread, which
+ * also dispatches the input events. Messages are passed through a preallocated ring of slots without locks, so posting a message neither blocks nor
+ * allocates memory. The ring supports only one producer thread at a time (the native speech thread, see SpeakAccessibility() in tools.cpp).
+ */
+final class SpeechDispatcher
+{
+    interface MessageHandler
+    {
+        /**
+         * @param emitTime time when the message was emitted by the native code, 0 if unknown
+         * @param postTime time when the message was posted to the dispatcher
+         */
+        void handleMessage( final String text, final int attributes, final long emitTime, final long postTime );
+
+        /**
+         * Called once all the posted messages have been handled, as well as after each wake-up of the dispatcher thread.
+         */
+        void onMessagesHandled();
+    }
+
+    // Should be a power of 2
+    private static final int CAPACITY = 64;
+
+    private final String[] textSlots = new String[CAPACITY];
+    private final int[] attributeSlots = new int[CAPACITY];
+    private final long[] emitTimeSlots = new long[CAPACITY];
+    private final long[] postTimeSlots = new long[CAPACITY];
+
+    // Index of the next slot to read, it is modified only by the dispatcher thread
+    private final AtomicLong head = new AtomicLong( 0 );
+    // Index of the next slot to write, it is modified only by the producer thread
+    private final AtomicLong tail = new AtomicLong( 0 );
+
+    private final AtomicBoolean isWakeUpRequested = new AtomicBoolean( false );
+
+    private final MessageHandler handler;
+    private final Thread thread;
+
+    SpeechDispatcher( final MessageHandler handler )
+    {
+        this.handler = handler;
+
+        thread = new Thread( this::dispatchMessages, "SpeechDispatcher" );
+        // The dispatcher lives as long as the process
+        thread.setDaemon( true );
+        thread.start();
+    }
+
+    /**
+     * Posts the message to the dispatcher thread. Should be called by only one thread at a time.
+     *
+     * @return false if the message was dropped because the ring is full
+     */
+    boolean post( final String text, final int attributes, final long emitTime )
+    {
+        final long currentTail = tail.get();
+        if ( currentTail - head.get() >= CAPACITY ) {
+            return false;
+        }
+
+        final int slot = (int)( currentTail & ( CAPACITY - 1 ) );
+
+        textSlots[slot] = text;
+        attributeSlots[slot] = attributes;
+        emitTimeSlots[slot] = emitTime;
+        postTimeSlots[slot] = System.nanoTime();
+
+        // The slot should be filled before it becomes visible to the dispatcher thread
+        tail.lazySet( currentTail + 1 );
+
+        LockSupport.unpark( thread );
+
+        return true;
+    }
+
+    /**
+     * Wakes up the dispatcher thread even if there are no new messages. Can be called by any thread.
+     */
+    void wakeUp()
+    {
+        isWakeUpRequested.set( true );
+
+        LockSupport.unpark( thread );
+    }
+
+    private void dispatchMessages()
+    {
+        while ( true ) {
+            final long currentHead = head.get();
+            if ( currentHead == tail.get() ) {
+                isWakeUpRequested.set( false );
+
+                try {
+                    handler.onMessagesHandled();
+                }
+                catch ( final RuntimeException ex ) {
+                    Log.e( "fheroes2", "Failed to handle the messages for the screen reader.", ex );
+                }
+
+                // If a message is posted or a wake-up is requested after the check below, the thread is unparked and the loop is repeated
+                if ( head.get() == tail.get() && !isWakeUpRequested.get() ) {
+                    LockSupport.park( this );
+                }
+
+                continue;
+            }
+
+            final int slot = (int)( currentHead & ( CAPACITY - 1 ) );
+
+            final String text = textSlots[slot];
+            final int attributes = attributeSlots[slot];
+            final long emitTime = emitTimeSlots[slot];
+            final long postTime = postTimeSlots[slot];
+            textSlots[slot] = null;
+
+            // The slot should be released only after it has been read
+            head.lazySet( currentHead + 1 );
+
+            try {
+                handler.handleMessage( text, attributes, emitTime, postTime );
+            }
+            catch ( final RuntimeException ex ) {
+                Log.e( "fheroes2", "Failed to handle the message for the screen reader.", ex );
+            }
+        }
+    }
+}
@@ -0,0 +1,328 @@
+/***************************************************************************
+ *   fheroes2: https://github.com/ihhub/fheroes2                           *
+ *   Copyright (C) 2025                                                    *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   This program is distributed in the hope that it will be useful,       *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with this program; if not, write to the                         *
+ *   Free Software Foundation, Inc.,                                       *
+ *   59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.             *
+ ***************************************************************************/
+
+package org.fheroes2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Latency metrics of the screen reader messages. Each message is timestamped when it is emitted by the native code, when it is received by the Java
+ * code, when it is handled by the speech dispatcher thread, when it is passed to the TTS engine, and when its utterance is started and finished.
+ * Intervals between these points are collected into per-channel histograms, along with the counts of the dropped and interrupted messages. All
+ * timestamps are System.nanoTime() values, which use the same monotonic clock as std::chrono::steady_clock in the native code.
+ * <p>
+ * All methods are thread-safe.
+ */
+final class SpeechMetrics
+{
+    enum Stage
+    {
+        // From the native code to the Java code (native queue and JNI call)
+        NATIVE( "native" ),
+        // From the Java entry point to the speech dispatcher thread
+        DISPATCH( "dispatch" ),
+        // Waiting for the higher priority utterances to be finished
+        SCHEDULING( "scheduling" ),
+        // From the call of TextToSpeech.speak() to the start of the utterance
+        ENGINE( "engine" ),
+        // From the native code to the start of the utterance
+        TOTAL( "total" ),
+        // From the start of the utterance to its end
+        DURATION( "duration" );
+
+        private final String title;
+
+        Stage( final String title )
+        {
+            this.title = title;
+        }
+    }
+
+    enum Drop
+    {
+        // The ring of the speech dispatcher was full
+        RING_FULL( "ring full" ),
+        // The pending (or buffered) message was replaced by the newer message of the same channel
+        SUPERSEDED( "superseded" ),
+        // The same message was being spoken already
+        DUPLICATE( "duplicate" ),
+        // The TTS engine has refused the message
+        REJECTED( "rejected" ),
+        // The buffer of the messages that arrived before the TTS engine was ready was full
+        BUFFER_FULL( "buffer full" );
+
+        private final String title;
+
+        Drop( final String title )
+        {
+            this.title = title;
+        }
+    }
+
+    // Upper bounds of the histogram buckets in milliseconds, the last bucket is unbounded
+    private static final long[] BUCKET_BOUNDS_MS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000 };
+
+    // Maximum number of utterances that are tracked until they are finished
+    private static final int MAX_TRACKED_UTTERANCES = 16;
+
+    private static final class Histogram
+    {
+        private final long[] counts = new long[BUCKET_BOUNDS_MS.length + 1];
+
+        private long total = 0;
+        private long sumMs = 0;
+        private long maxMs = 0;
+
+        private void add( final long valueMs )
+        {
+            int bucket = 0;
+            while ( bucket < BUCKET_BOUNDS_MS.length && valueMs > BUCKET_BOUNDS_MS[bucket] ) {
+                ++bucket;
+            }
+
+            ++counts[bucket];
+            ++total;
+            sumMs += valueMs;
+            maxMs = Math.max( maxMs, valueMs );
+        }
+
+        /**
+         * @return upper bound of the bucket that contains the given percentile, or the maximum value for the last bucket
+         */
+        private long getPercentile( final int percentile )
+        {
+            final long threshold = ( total * percentile + 99 ) / 100;
+
+            long count = 0;
+            for ( int bucket = 0; bucket < BUCKET_BOUNDS_MS.length; ++bucket ) {
+                count += counts[bucket];
+                if ( count >= threshold ) {
+                    return Math.min( BUCKET_BOUNDS_MS[bucket], maxMs );
+                }
+            }
+
+            return maxMs;
+        }
+    }
+
+    private static final class Utterance
+    {
+        private final int channel;
+        private final long emitTime;
+        private final long speakTime;
+
+        private long startTime = 0;
+
+        private Utterance( final int channel, final long emitTime, final long speakTime )
+        {
+            this.channel = channel;
+            this.emitTime = emitTime;
+            this.speakTime = speakTime;
+        }
+    }
+
+    private static final SpeechScheduler.Channel[] CHANNELS = SpeechScheduler.Channel.values();
+    private static final Stage[] STAGES = Stage.values();
+    private static final Drop[] DROPS = Drop.values();
+
+    private final Histogram[][] histograms = new Histogram[CHANNELS.length][STAGES.length];
+    private final long[][] drops = new long[CHANNELS.length][DROPS.length];
+    private final long[] interruptions = new long[CHANNELS.length];
+    private final long[] cacheHits = new long[CHANNELS.length];
+
+    private final Map<String, Utterance> utterances = new LinkedHashMap<>();
+
+    SpeechMetrics()
+    {
+        for ( final Histogram[] channelHistograms : histograms ) {
+            for ( int i = 0; i < channelHistograms.length; ++i ) {
+                channelHistograms[i] = new Histogram();
+            }
+        }
+    }
+
+    synchronized void onDropped( final SpeechScheduler.Channel channel, final Drop drop )
+    {
+        ++drops[channel.ordinal()][drop.ordinal()];
+    }
+
+    synchronized void onInterrupted( final SpeechScheduler.Channel channel )
+    {
+        ++interruptions[channel.ordinal()];
+    }
+
+    /**
+     * Should be called right after the message is passed to the TTS engine (or its cached clip is played).
+     */
+    synchronized void onSpeakStarted( final String utteranceId, final SpeechScheduler.Channel channel, final long emitTime, final long postTime,
+                                      final long handleTime, final boolean isCacheHit )
+    {
+        final long speakTime = System.nanoTime();
+        final int channelId = channel.ordinal();
+
+        addInterval( channelId, Stage.NATIVE, emitTime, postTime );
+        addInterval( channelId, Stage.DISPATCH, postTime, handleTime );
+        addInterval( channelId, Stage.SCHEDULING, handleTime, speakTime );
+
+        final Utterance utterance = new Utterance( channelId, emitTime, speakTime );
+
+        if ( isCacheHit ) {
+            // The clip starts playing right away
+            ++cacheHits[channelId];
+
+            utterance.startTime = speakTime;
+
+            addInterval( channelId, Stage.ENGINE, speakTime, speakTime );
+            addInterval( channelId, Stage.TOTAL, emitTime, speakTime );
+        }
+
+        utterances.put( utteranceId, utterance );
+
+        // Utterances that have never been finished for some reason should not be tracked forever
+        final Iterator<Utterance> iter = utterances.values().iterator();
+        while ( utterances.size() > MAX_TRACKED_UTTERANCES && iter.hasNext() ) {
+            iter.next();
+            iter.remove();
+        }
+    }
+
+    synchronized void onUtteranceStarted( final String utteranceId )
+    {
+        final Utterance utterance = utterances.get( utteranceId );
+        if ( utterance == null || utterance.startTime != 0 ) {
+            return;
+        }
+
+        utterance.startTime = System.nanoTime();
+
+        addInterval( utterance.channel, Stage.ENGINE, utterance.speakTime, utterance.startTime );
+        addInterval( utterance.channel, Stage.TOTAL, utterance.emitTime, utterance.startTime );
+    }
+
+    synchronized void onUtteranceFinished( final String utteranceId )
+    {
+        final Utterance utterance = utterances.remove( utteranceId );
+        if ( utterance == null || utterance.startTime == 0 ) {
+            return;
+        }
+
+        addInterval( utterance.channel, Stage.DURATION, utterance.startTime, System.nanoTime() );
+    }
+
+    /**
+     * @return short summary suitable for the debug overlay: the median and the 90th percentile of the total latency, and the number of the dropped
+     *         and interrupted messages of each channel that had any messages
+     */
+    synchronized String getSummary()
+    {
+        final StringBuilder result = new StringBuilder();
+
+        for ( final SpeechScheduler.Channel channel : CHANNELS ) {
+            final int channelId = channel.ordinal();
+            final Histogram total = histograms[channelId][Stage.TOTAL.ordinal()];
+
+            long channelDrops = 0;
+            for ( final long count : drops[channelId] ) {
+                channelDrops += count;
+            }
+
+            if ( total.total == 0 && channelDrops == 0 ) {
+                continue;
+            }
+
+            result.append( String.format( Locale.ROOT, "%s: p50 %d ms, p90 %d ms, n %d, drop %d, int %d\n", channel.name(), total.getPercentile( 50 ),
+                                          total.getPercentile( 90 ), total.total, channelDrops, interruptions[channelId] ) );
+        }
+
+        return result.toString().trim();
+    }
+
+    synchronized String dump()
+    {
+        final StringBuilder result = new StringBuilder();
+
+        for ( final SpeechScheduler.Channel channel : CHANNELS ) {
+            final int channelId = channel.ordinal();
+
+            result.append( String.format( Locale.ROOT, "%s: interrupted %d, cache hits %d", channel.name(), interruptions[channelId], cacheHits[channelId] ) );
+            for ( final Drop drop : DROPS ) {
+                result.append( String.format( Locale.ROOT, ", %s %d", drop.title, drops[channelId][drop.ordinal()] ) );
+            }
+            result.append( '\n' );
+
+            result.append( String.format( Locale.ROOT, "  %-10s %8s %8s %8s %8s %8s %8s\n", "Stage", "Count", "Mean", "P50", "P90", "P99", "Max" ) );
+
+            for ( final Stage stage : STAGES ) {
+                final Histogram histogram = histograms[channelId][stage.ordinal()];
+                if ( histogram.total == 0 ) {
+                    continue;
+                }
+
+                result.append( String.format( Locale.ROOT, "  %-10s %8d %8d %8d %8d %8d %8d\n", stage.title, histogram.total, histogram.sumMs / histogram.total,
+                                              histogram.getPercentile( 50 ), histogram.getPercentile( 90 ), histogram.getPercentile( 99 ), histogram.maxMs ) );
+            }
+
+            result.append( "  Buckets (ms):" );
+            for ( final long bound : BUCKET_BOUNDS_MS ) {
+                result.append( String.format( Locale.ROOT, " %6d", bound ) );
+            }
+            result.append( "    inf\n" );
+
+            for ( final Stage stage : STAGES ) {
+                final Histogram histogram = histograms[channelId][stage.ordinal()];
+                if ( histogram.total == 0 ) {
+                    continue;
+                }
+
+                result.append( String.format( Locale.ROOT, "  %-12s", stage.title ) );
+                for ( final long count : histogram.counts ) {
+                    result.append( String.format( Locale.ROOT, " %6d", count ) );
+                }
+                result.append( '\n' );
+            }
+
+            result.append( '\n' );
+        }
+
+        return result.toString();
+    }
+
+    void save( final File file ) throws IOException
+    {
+        Files.write( file.toPath(), dump().getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    private void addInterval( final int channelId, final Stage stage, final long from, final long to )
+    {
+        // Timestamp may be unknown (e.g. for the messages sent using the legacy entry point)
+        if ( from == 0 || to < from ) {
+            return;
+        }
+
+        histograms[channelId][stage.ordinal()].add( ( to - from ) / 1000000 );
+    }
+}
@@ -0,0 +1,314 @@
+/***************************************************************************
+ *   fheroes2: https://github.com/ihhub/fheroes2                           *
+ *   Copyright (C) 2025                                                    *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   This program is distributed in the hope that it will be useful,       *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with this program; if not, write to the                         *
+ *   Free Software Foundation, Inc.,                                       *
+ *   59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.             *
+ ***************************************************************************/
+
+package org.fheroes2;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.content.res.Resources;
+import android.util.Log;
+
+/**
+ * Rewrites the messages for the screen reader, so the TTS engine reads them well: expands the game abbreviations and the abbreviated numbers (e.g.
+ * "12K", see fheroes2::abbreviateNumber()), and replaces the punctuation that the TTS engines read badly. The rules are taken from the dictionary
+ * of the current locale (res/raw/speech_dictionary.txt and its localized versions), which is compiled once into an Aho-Corasick automaton, so all
+ * the rules are applied in a single pass over the message. Results are memoized for the recent messages, since the same messages are often
+ * repeated (e.g. when the finger moves back and forth across the same objects).
+ * <p>
+ * Each line of the dictionary consists of a pattern and its replacement separated by a tab, the lines starting with '#' are comments. Patterns are
+ * case-sensitive and match only whole words: a pattern that starts (ends) with a letter or a digit does not match right after (before) another
+ * letter or digit. A pattern starting with "\d" matches only right after a digit, and its replacement is separated from this digit by a space,
+ * unless the rest of the pattern starts with a digit too: then it continues the number (e.g. "\d1K" matches the "1K" of "21K"), so the words that
+ * agree with the last digits of the number can be chosen. When several patterns match at the same position, the longest one is applied, and the
+ * match that starts earlier takes precedence over the overlapping matches.
+ * <p>
+ * This class is not thread-safe, it is used only on the speech dispatcher thread.
+ */
+final class SpeechNormalizer
+{
+    private static final String AFTER_DIGIT_PREFIX = "\\d";
+
+    // Maximum number of the memoized messages
+    private static final int MAX_MEMOIZED_MESSAGES = 256;
+
+    private static final class Rule
+    {
+        private final String pattern;
+        private final String replacement;
+        private final boolean isAfterDigit;
+
+        private Rule( final String pattern, final String replacement, final boolean isAfterDigit )
+        {
+            this.pattern = pattern;
+            this.replacement = replacement;
+            this.isAfterDigit = isAfterDigit;
+        }
+    }
+
+    private static final class Node
+    {
+        private final Map<Character, Node> children = new HashMap<>();
+
+        // Node of the longest proper suffix of this node that is present in the automaton
+        private Node failure = null;
+        // Node of the longest proper suffix of this node that is the end of a pattern
+        private Node output = null;
+
+        // Indices of the rules whose pattern ends at this node (the same pattern may be used both with and without the "\d" prefix), -1 if there
+        // is no such rule
+        private int ruleIndex = -1;
+        private int afterDigitRuleIndex = -1;
+
+        private boolean hasRules()
+        {
+            return ruleIndex >= 0 || afterDigitRuleIndex >= 0;
+        }
+    }
+
+    private final Resources resources;
+    private final int dictionaryId;
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final Node root = new Node();
+
+    private boolean isDictionaryLoaded = false;
+
+    private final LinkedHashMap<String, String> memoizedMessages = new LinkedHashMap<String, String>( 16, 0.75f, true ) {
+        @Override
+        protected boolean removeEldestEntry( final Map.Entry<String, String> eldest )
+        {
+            return size() > MAX_MEMOIZED_MESSAGES;
+        }
+    };
+
+    SpeechNormalizer( final Resources resources, final int dictionaryId )
+    {
+        this.resources = resources;
+        this.dictionaryId = dictionaryId;
+    }
+
+    String normalize( final String text )
+    {
+        final String memoized = memoizedMessages.get( text );
+        if ( memoized != null ) {
+            return memoized;
+        }
+
+        loadDictionary();
+
+        final String result = rules.isEmpty() ? text : applyRules( text );
+
+        memoizedMessages.put( text, result );
+
+        return result;
+    }
+
+    private String applyRules( final String text )
+    {
+        final int length = text.length();
+
+        // Rule of the longest match starting at each position of the text
+        final int[] matchedRules = new int[length];
+        final int[] matchedLengths = new int[length];
+
+        Node node = root;
+
+        for ( int end = 1; end <= length; ++end ) {
+            final char ch = text.charAt( end - 1 );
+
+            Node next = node.children.get( ch );
+            while ( next == null && node != root ) {
+                node = node.failure;
+                next = node.children.get( ch );
+            }
+
+            node = next == null ? root : next;
+
+            for ( Node match = node.hasRules() ? node : node.output; match != null; match = match.output ) {
+                applyMatch( text, end, match.ruleIndex, matchedRules, matchedLengths );
+                applyMatch( text, end, match.afterDigitRuleIndex, matchedRules, matchedLengths );
+            }
+        }
+
+        StringBuilder result = null;
+
+        for ( int pos = 0; pos < length; ) {
+            if ( matchedLengths[pos] == 0 ) {
+                if ( result != null ) {
+                    result.append( text.charAt( pos ) );
+                }
+
+                ++pos;
+                continue;
+            }
+
+            // Most messages have nothing to replace, so the copy of the text is made only once the first match is found
+            if ( result == null ) {
+                result = new StringBuilder( length + 16 );
+                result.append( text, 0, pos );
+            }
+
+            final Rule rule = rules.get( matchedRules[pos] );
+            if ( rule.isAfterDigit && !Character.isDigit( rule.pattern.charAt( 0 ) ) ) {
+                result.append( ' ' );
+            }
+            result.append( rule.replacement );
+
+            pos += matchedLengths[pos];
+        }
+
+        return result == null ? text : result.toString();
+    }
+
+    /**
+     * Remembers the match of the given rule ending at the given position of the text, if it is the longest allowed match starting at its position.
+     */
+    private void applyMatch( final String text, final int end, final int ruleIndex, final int[] matchedRules, final int[] matchedLengths )
+    {
+        if ( ruleIndex < 0 ) {
+            return;
+        }
+
+        final Rule rule = rules.get( ruleIndex );
+        final int start = end - rule.pattern.length();
+
+        if ( rule.pattern.length() > matchedLengths[start] && isMatchAllowed( text, start, end, rule ) ) {
+            matchedRules[start] = ruleIndex;
+            matchedLengths[start] = rule.pattern.length();
+        }
+    }
+
+    private static boolean isMatchAllowed( final String text, final int start, final int end, final Rule rule )
+    {
+        if ( rule.isAfterDigit ) {
+            if ( start == 0 || !Character.isDigit( text.charAt( start - 1 ) ) ) {
+                return false;
+            }
+        }
+        else if ( start > 0 && Character.isLetterOrDigit( rule.pattern.charAt( 0 ) ) && Character.isLetterOrDigit( text.charAt( start - 1 ) ) ) {
+            return false;
+        }
+
+        return end == text.length() || !Character.isLetterOrDigit( rule.pattern.charAt( rule.pattern.length() - 1 ) )
+            || !Character.isLetterOrDigit( text.charAt( end ) );
+    }
+
+    /**
+     * Loads the dictionary and compiles it into the automaton on the first use, so the resources are not read on the main thread.
+     */
+    private void loadDictionary()
+    {
+        if ( isDictionaryLoaded ) {
+            return;
+        }
+
+        isDictionaryLoaded = true;
+
+        try ( final BufferedReader reader = new BufferedReader( new InputStreamReader( resources.openRawResource( dictionaryId ), StandardCharsets.UTF_8 ) ) ) {
+            for ( String line = reader.readLine(); line != null; line = reader.readLine() ) {
+                if ( line.isEmpty() || line.startsWith( "#" ) ) {
+                    continue;
+                }
+
+                final String[] fields = line.split( "\t", 2 );
+                if ( fields.length != 2 ) {
+                    continue;
+                }
+
+                final boolean isAfterDigit = fields[0].startsWith( AFTER_DIGIT_PREFIX );
+                final String pattern = isAfterDigit ? fields[0].substring( AFTER_DIGIT_PREFIX.length() ) : fields[0];
+                if ( pattern.isEmpty() ) {
+                    continue;
+                }
+
+                addRule( new Rule( pattern, fields[1], isAfterDigit ) );
+            }
+        }
+        catch ( final IOException | Resources.NotFoundException ex ) {
+            Log.e( "fheroes2", "Failed to load the speech dictionary.", ex );
+        }
+
+        buildFailureLinks();
+    }
+
+    private void addRule( final Rule rule )
+    {
+        Node node = root;
+
+        for ( int i = 0; i < rule.pattern.length(); ++i ) {
+            Node child = node.children.get( rule.pattern.charAt( i ) );
+            if ( child == null ) {
+                child = new Node();
+                node.children.put( rule.pattern.charAt( i ), child );
+            }
+
+            node = child;
+        }
+
+        // The first rule with the same pattern wins
+        if ( rule.isAfterDigit && node.afterDigitRuleIndex < 0 ) {
+            node.afterDigitRuleIndex = rules.size();
+            rules.add( rule );
+        }
+        else if ( !rule.isAfterDigit && node.ruleIndex < 0 ) {
+            node.ruleIndex = rules.size();
+            rules.add( rule );
+        }
+    }
+
+    private void buildFailureLinks()
+    {
+        final ArrayDeque<Node> queue = new ArrayDeque<>();
+
+        for ( final Node child : root.children.values() ) {
+            child.failure = root;
+            queue.add( child );
+        }
+
+        // Nodes are visited in the order of their depth, so the links of the shorter suffixes are always built first
+        while ( !queue.isEmpty() ) {
+            final Node node = queue.poll();
+
+            for ( final Map.Entry<Character, Node> entry : node.children.entrySet() ) {
+                final Node child = entry.getValue();
+
+                Node failure = node.failure;
+                while ( failure != root && !failure.children.containsKey( entry.getKey() ) ) {
+                    failure = failure.failure;
+                }
+
+                final Node failureChild = failure.children.get( entry.getKey() );
+                child.failure = failureChild == null ? root : failureChild;
+                child.output = child.failure.hasRules() ? child.failure : child.failure.output;
+
+                queue.add( child );
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/***************************************************************************
+ *   fheroes2: https://github.com/ihhub/fheroes2                           *
+ *   Copyright (C) 2025                                                    *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   This program is distributed in the hope that it will be useful,       *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with this program; if not, write to the                         *
+ *   Free Software Foundation, Inc.,                                       *
+ *   59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.             *
+ ***************************************************************************/
+
+package org.fheroes2;
+
+/**
+ * Chooses the speech rate of each utterance depending on the backlog of the screen reader messages. The rate grows from the preferred rate up to
+ * the maximum rate as the text waiting to be spoken piles up and as the messages arrive faster, and it returns to the preferred rate once the
+ * backlog is gone. This way the text-heavy screens stay usable without an unbounded delay of the speech.
+ * <p>
+ * Both bounds are set in the game configuration file along with the other speech settings and are passed by the native code. Methods other than
+ * setRates() should be called on the speech dispatcher thread.
+ */
+final class SpeechRateController
+{
+    private static final float DEFAULT_PREFERRED_RATE = 1.2f;
+    private static final float DEFAULT_MAX_RATE = 2.0f;
+
+    // Rates outside of this range are either barely intelligible or not supported by the TTS engines
+    private static final float MIN_SUPPORTED_RATE = 0.5f;
+    private static final float MAX_SUPPORTED_RATE = 4.0f;
+
+    // Rates are rounded to this step, so the clips of the utterance cache can be reused for the similar backlogs
+    private static final float RATE_STEP = 0.1f;
+
+    // Number of the characters waiting to be spoken that leads to the maximum rate
+    private static final int BACKLOG_LENGTH_FOR_MAX_RATE = 300;
+    // Number of the messages arriving per second that leads to the maximum rate
+    private static final double ARRIVAL_RATE_FOR_MAX_RATE = 4.0;
+    // Time constant of the exponential moving average of the arrival rate of the messages
+    private static final double ARRIVAL_RATE_TIME_CONSTANT_S = 2.0;
+
+    private volatile float preferredRate = DEFAULT_PREFERRED_RATE;
+    private volatile float maxRate = DEFAULT_MAX_RATE;
+
+    // Exponential moving average of the number of the messages arriving per second as of the time of the last message
+    private double arrivalRate = 0;
+    private long lastArrivalTime = 0;
+
+    /**
+     * Sets the bounds of the speech rate, 1.0 is the normal rate. Can be called on any thread.
+     *
+     * @param preferred speech rate used when there is no backlog
+     * @param max speech rate used when the backlog is large, the adaptive speech rate is disabled if it is equal to the preferred rate
+     */
+    void setRates( final float preferred, final float max )
+    {
+        final float clampedPreferred = Math.max( MIN_SUPPORTED_RATE, Math.min( preferred, MAX_SUPPORTED_RATE ) );
+
+        // The rate is never reduced because of the backlog
+        preferredRate = clampedPreferred;
+        maxRate = Math.max( clampedPreferred, Math.min( max, MAX_SUPPORTED_RATE ) );
+    }
+
+    float getPreferredRate()
+    {
+        return preferredRate;
+    }
+
+    void onMessageArrived( final long time )
+    {
+        arrivalRate = getArrivalRate( time ) + 1 / ARRIVAL_RATE_TIME_CONSTANT_S;
+        lastArrivalTime = time;
+    }
+
+    /**
+     * @param backlogLength total length of the messages that are waiting to be spoken after the next utterance
+     * @return speech rate of the next utterance
+     */
+    float getRate( final int backlogLength, final long time )
+    {
+        final float preferred = preferredRate;
+        final float max = maxRate;
+
+        final double backlogPressure = (double)backlogLength / BACKLOG_LENGTH_FOR_MAX_RATE;
+        final double arrivalPressure = getArrivalRate( time ) / ARRIVAL_RATE_FOR_MAX_RATE;
+        final double pressure = Math.min( 1.0, Math.max( backlogPressure, arrivalPressure ) );
+
+        final float rate = preferred + Math.round( ( max - preferred ) * pressure / RATE_STEP ) * RATE_STEP;
+
+        return Math.min( rate, max );
+    }
+
+    private double getArrivalRate( final long time )
+    {
+        if ( lastArrivalTime == 0 ) {
+            return 0;
+        }
+
+        return arrivalRate * Math.exp( -( time - lastArrivalTime ) / 1e9 / ARRIVAL_RATE_TIME_CONSTANT_S );
+    }
+}
@@ -0,0 +1,511 @@
+/***************************************************************************
+ *   fheroes2: https://github.com/ihhub/fheroes2                           *
+ *   Copyright (C) 2025                                                    *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   This program is distributed in the hope that it will be useful,       *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with this program; if not, write to the                         *
+ *   Free Software Foundation, Inc.,                                       *
+ *   59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.             *
+ ***************************************************************************/
+
+package org.fheroes2;
+
+import java.text.BreakIterator;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Decides which of the messages for the screen reader should be spoken and when. Each message belongs to a channel with its own priority, and each
+ * channel keeps only its newest pending message, so outdated messages (e.g. names of the tiles the finger has already left) are dropped instead of
+ * being queued by the TTS engine. Only one utterance is passed to the TTS engine at a time: a pending message interrupts the current utterance if
+ * it has a higher priority or it is a newer message of the same channel (unless it has the FLAG_NO_INTERRUPT flag), otherwise it waits until the
+ * current utterance is finished.
+ * <p>
+ * Attributes of each message are packed into one word by the native code (see SpeechAttributes in tools.h): bits 0-3 are the channel, bits 4-7
+ * are the priority (0 means the default priority of the channel), bits 8-15 are the pitch in percent (0 means the default pitch of the channel)
+ * and bits 16-31 are the flags.
+ * <p>
+ * The speech rate of each utterance is chosen by SpeechRateController depending on the length of the messages waiting behind it and on the
+ * arrival rate of the messages.
+ * <p>
+ * Long messages (e.g. texts of the adventure map events) are split into a group of sentences, which are spoken one by one, so the speech starts
+ * once the first sentence is synthesized instead of the whole message. The whole group is treated as one message: it is interrupted as soon as any
+ * pending message is allowed to interrupt its current sentence, and then its remaining sentences are dropped.
+ * <p>
+ * Messages that arrive before the TTS engine is ready (e.g. the startup announcements) are kept in a bounded buffer instead of the per-channel
+ * slots. Once the TTS engine is ready, they are spoken one by one in the priority order whenever there is nothing else to speak. Buffered messages
+ * of the transient channels (e.g. the status bar) are superseded by the newer messages of the same channel, just like the pending ones.
+ * <p>
+ * All methods except onUtteranceFinished() should be called on the speech dispatcher thread.
+ */
+final class SpeechScheduler
+{
+    enum Channel
+    {
+        // Descriptions of the objects under the cursor or the finger
+        STATUS_BAR( 1, 1.0f, true ),
+        // Descriptions of the focused elements during the keyboard or gamepad navigation
+        NAVIGATION( 2, 1.0f, true ),
+        // Contents of the dialogs
+        DIALOG( 3, 1.0f, false ),
+        // Warnings about enemies and other dangers, they are spoken in a low voice
+        DANGER( 4, 0.6f, false );
+
+        private final int priority;
+        private final float pitch;
+        // Messages of the transient channel describe the current state, so even the buffered messages are superseded by the newer ones
+        private final boolean isTransient;
+
+        Channel( final int priority, final float pitch, final boolean isTransient )
+        {
+            this.priority = priority;
+            this.pitch = pitch;
+            this.isTransient = isTransient;
+        }
+    }
+
+    interface Speaker
+    {
+        int RESULT_FAILED = 0;
+        int RESULT_SYNTHESIZED = 1;
+        int RESULT_CACHED = 2;
+
+        /**
+         * Speaks the given text, interrupting the current utterance (if any).
+         *
+         * @return RESULT_SYNTHESIZED if the text is passed to the TTS engine, RESULT_CACHED if its cached clip is played, or RESULT_FAILED if the text
+         *         cannot be spoken
+         */
+        int speak( final String text, final float pitch, final float rate, final String utteranceId );
+
+        /**
+         * Called when there are neither pending messages nor the current utterance, so the TTS engine can be used for the background tasks.
+         */
+        void onIdle();
+
+        /**
+         * @return true if the TTS engine is initialized and can speak
+         */
+        boolean isReady();
+
+        /**
+         * Called right after the current utterance is passed to the TTS engine with the text that is most likely to be spoken next, so it can be
+         * synthesized in advance.
+         */
+        void prefetch( final String text, final float pitch, final float rate );
+    }
+
+    private static final class BufferedMessage
+    {
+        private final String text;
+        private final int attributes;
+        private final long emitTime;
+        private final long postTime;
+        private final long handleTime;
+
+        private BufferedMessage( final String text, final int attributes, final long emitTime, final long postTime, final long handleTime )
+        {
+            this.text = text;
+            this.attributes = attributes;
+            this.emitTime = emitTime;
+            this.postTime = postTime;
+            this.handleTime = handleTime;
+        }
+    }
+
+    // Speak the message even if the same message of the same channel is being spoken right now
+    static final int FLAG_REPEAT = 0x1;
+    // Do not interrupt the message of the same channel that is being spoken right now, but wait until it is finished
+    static final int FLAG_NO_INTERRUPT = 0x2;
+
+    private static final Channel[] CHANNELS = Channel.values();
+
+    private static final String UTTERANCE_ID_PREFIX = "f2_access_";
+
+    // Messages longer than this are split into sentences
+    private static final int MIN_LENGTH_TO_SPLIT = 150;
+    // Sentences shorter than this are joined with the next sentence, since each utterance has its own startup delay
+    private static final int MIN_SENTENCE_LENGTH = 30;
+
+    // Maximum number of the messages kept until the TTS engine is ready
+    private static final int MAX_BUFFERED_MESSAGES = 16;
+
+    // The prefetched utterance is spoken at the rate it has been prefetched with if the chosen rate differs by no more than this, since such a
+    // difference is barely noticeable, while the utterance synthesized again starts much later
+    private static final float MAX_PREFETCHED_RATE_DEVIATION = 0.2f;
+
+    private final Speaker speaker;
+    private final SpeechMetrics metrics;
+    private final SpeechRateController rateController;
+
+    // Newest pending message of each channel, the text is null if there is no pending message
+    private final String[] pendingTexts = new String[CHANNELS.length];
+    private final int[] pendingPriorities = new int[CHANNELS.length];
+    private final float[] pendingPitches = new float[CHANNELS.length];
+    private final int[] pendingFlags = new int[CHANNELS.length];
+    private final long[] pendingEmitTimes = new long[CHANNELS.length];
+    private final long[] pendingPostTimes = new long[CHANNELS.length];
+    private final long[] pendingHandleTimes = new long[CHANNELS.length];
+
+    // ID of the utterance passed to the TTS engine, it is reset once the utterance is finished
+    private final AtomicReference<String> currentUtteranceId = new AtomicReference<>( null );
+
+    private Channel currentChannel = null;
+    private int currentPriority = 0;
+    private String currentText = null;
+    private float currentPitch = 1.0f;
+
+    // Sentences of the current message that haven't been spoken yet
+    private final ArrayDeque<String> remainingSentences = new ArrayDeque<>();
+
+    // Messages that have arrived before the TTS engine was ready, in the order of arrival
+    private final List<BufferedMessage> bufferedMessages = new ArrayList<>();
+
+    // Utterance that has been prefetched to be spoken next, the text is null if there is no such utterance
+    private String prefetchedText = null;
+    private float prefetchedPitch = 1.0f;
+    private float prefetchedRate = 1.0f;
+
+    private long utteranceCounter = 0;
+
+    SpeechScheduler( final Speaker speaker, final SpeechMetrics metrics, final SpeechRateController rateController )
+    {
+        this.speaker = speaker;
+        this.metrics = metrics;
+        this.rateController = rateController;
+    }
+
+    static Channel getChannel( final int attributes )
+    {
+        final int channelId = attributes & 0xF;
+
+        return channelId < CHANNELS.length ? CHANNELS[channelId] : Channel.STATUS_BAR;
+    }
+
+    static int packAttributes( final Channel channel, final int flags )
+    {
+        return channel.ordinal() | ( flags << 16 );
+    }
+
+    void enqueue( final String text, final int attributes, final long emitTime, final long postTime )
+    {
+        rateController.onMessageArrived( postTime );
+
+        final Channel channel = getChannel( attributes );
+        if ( channel.isTransient ) {
+            dropBufferedMessages( channel );
+        }
+
+        if ( !speaker.isReady() ) {
+            bufferMessage( new BufferedMessage( text, attributes, emitTime, postTime, System.nanoTime() ) );
+            return;
+        }
+
+        addPendingMessage( text, attributes, emitTime, postTime, System.nanoTime() );
+    }
+
+    /**
+     * Passes the most important pending message to the TTS engine, if it is allowed to interrupt the current message or there is no current message
+     * at all. Otherwise, passes the next sentence of the current message to the TTS engine once the previous one is finished.
+     */
+    void dispatch()
+    {
+        if ( !speaker.isReady() ) {
+            return;
+        }
+
+        // Buffered messages are older than the pending ones, so they are spoken only when there is nothing else to speak
+        if ( !bufferedMessages.isEmpty() && !isSpeaking() && getNextPendingChannel() == null ) {
+            flushBufferedMessage();
+        }
+
+        Channel nextChannel = getNextPendingChannel();
+
+        if ( nextChannel != null && isSpeaking() ) {
+            final int next = nextChannel.ordinal();
+            final boolean canInterrupt = pendingPriorities[next] > currentPriority
+                                         || ( nextChannel == currentChannel && ( pendingFlags[next] & FLAG_NO_INTERRUPT ) == 0 );
+            if ( !canInterrupt ) {
+                nextChannel = null;
+            }
+            else {
+                metrics.onInterrupted( currentChannel );
+
+                remainingSentences.clear();
+            }
+        }
+
+        if ( nextChannel == null ) {
+            if ( currentUtteranceId.get() != null ) {
+                return;
+            }
+
+            if ( remainingSentences.isEmpty() ) {
+                speaker.onIdle();
+                return;
+            }
+
+            // Timestamps of the following sentences are unknown, as they are not passed through the whole pipeline
+            speak( remainingSentences.poll(), currentPitch, currentChannel, 0, 0, 0 );
+            return;
+        }
+
+        final int next = nextChannel.ordinal();
+
+        final String text = pendingTexts[next];
+        pendingTexts[next] = null;
+
+        currentChannel = nextChannel;
+        currentPriority = pendingPriorities[next];
+        currentText = text;
+        currentPitch = pendingPitches[next];
+
+        if ( text.length() < MIN_LENGTH_TO_SPLIT ) {
+            speak( text, currentPitch, currentChannel, pendingEmitTimes[next], pendingPostTimes[next], pendingHandleTimes[next] );
+            return;
+        }
+
+        remainingSentences.addAll( splitIntoSentences( text ) );
+
+        speak( remainingSentences.poll(), currentPitch, currentChannel, pendingEmitTimes[next], pendingPostTimes[next], pendingHandleTimes[next] );
+    }
+
+    /**
+     * This method can be called on any thread.
+     *
+     * @return true if the current utterance has been finished and the next message can be dispatched
+     */
+    boolean onUtteranceFinished( final String utteranceId )
+    {
+        return utteranceId != null && currentUtteranceId.compareAndSet( utteranceId, null );
+    }
+
+    private void addPendingMessage( final String text, final int attributes, final long emitTime, final long postTime, final long handleTime )
+    {
+        final int pitch = ( attributes >>> 8 ) & 0xFF;
+        final int flags = attributes >>> 16;
+
+        final Channel channel = getChannel( attributes );
+
+        if ( pendingTexts[channel.ordinal()] != null ) {
+            metrics.onDropped( channel, SpeechMetrics.Drop.SUPERSEDED );
+        }
+
+        // The message that is being spoken right now is not repeated (e.g. when the finger moves within the same tile), but it still supersedes
+        // the older pending message of the same channel
+        if ( ( flags & FLAG_REPEAT ) == 0 && channel == currentChannel && text.equals( currentText ) && isSpeaking() ) {
+            pendingTexts[channel.ordinal()] = null;
+
+            metrics.onDropped( channel, SpeechMetrics.Drop.DUPLICATE );
+            return;
+        }
+
+        pendingTexts[channel.ordinal()] = text;
+        pendingPriorities[channel.ordinal()] = getPriority( attributes );
+        pendingPitches[channel.ordinal()] = pitch == 0 ? channel.pitch : pitch / 100.0f;
+        pendingFlags[channel.ordinal()] = flags;
+        pendingEmitTimes[channel.ordinal()] = emitTime;
+        pendingPostTimes[channel.ordinal()] = postTime;
+        pendingHandleTimes[channel.ordinal()] = handleTime;
+    }
+
+    /**
+     * @return channel of the pending message with the highest priority, or null if there are no pending messages
+     */
+    private Channel getNextPendingChannel()
+    {
+        Channel nextChannel = null;
+
+        for ( final Channel channel : CHANNELS ) {
+            if ( pendingTexts[channel.ordinal()] != null
+                 && ( nextChannel == null || pendingPriorities[channel.ordinal()] > pendingPriorities[nextChannel.ordinal()] ) ) {
+                nextChannel = channel;
+            }
+        }
+
+        return nextChannel;
+    }
+
+    private void bufferMessage( final BufferedMessage message )
+    {
+        if ( bufferedMessages.size() >= MAX_BUFFERED_MESSAGES ) {
+            // The oldest message of the lowest priority is dropped
+            int dropIndex = 0;
+            for ( int i = 1; i < bufferedMessages.size(); ++i ) {
+                if ( getPriority( bufferedMessages.get( i ).attributes ) < getPriority( bufferedMessages.get( dropIndex ).attributes ) ) {
+                    dropIndex = i;
+                }
+            }
+
+            if ( getPriority( message.attributes ) < getPriority( bufferedMessages.get( dropIndex ).attributes ) ) {
+                metrics.onDropped( getChannel( message.attributes ), SpeechMetrics.Drop.BUFFER_FULL );
+                return;
+            }
+
+            metrics.onDropped( getChannel( bufferedMessages.remove( dropIndex ).attributes ), SpeechMetrics.Drop.BUFFER_FULL );
+        }
+
+        bufferedMessages.add( message );
+    }
+
+    private void dropBufferedMessages( final Channel channel )
+    {
+        for ( final Iterator<BufferedMessage> iter = bufferedMessages.iterator(); iter.hasNext(); ) {
+            if ( getChannel( iter.next().attributes ) == channel ) {
+                iter.remove();
+
+                metrics.onDropped( channel, SpeechMetrics.Drop.SUPERSEDED );
+            }
+        }
+    }
+
+    /**
+     * Moves the oldest buffered message of the highest priority to the pending messages.
+     */
+    private void flushBufferedMessage()
+    {
+        int flushIndex = 0;
+        for ( int i = 1; i < bufferedMessages.size(); ++i ) {
+            if ( getPriority( bufferedMessages.get( i ).attributes ) > getPriority( bufferedMessages.get( flushIndex ).attributes ) ) {
+                flushIndex = i;
+            }
+        }
+
+        final BufferedMessage message = bufferedMessages.remove( flushIndex );
+
+        addPendingMessage( message.text, message.attributes, message.emitTime, message.postTime, message.handleTime );
+    }
+
+    private static int getPriority( final int attributes )
+    {
+        final int priority = ( attributes >>> 4 ) & 0xF;
+
+        return priority == 0 ? getChannel( attributes ).priority : priority;
+    }
+
+    private boolean isSpeaking()
+    {
+        return currentUtteranceId.get() != null || !remainingSentences.isEmpty();
+    }
+
+    private void speak( final String text, final float pitch, final Channel channel, final long emitTime, final long postTime, final long handleTime )
+    {
+        // The ID should be set before the utterance is started, otherwise its completion may be missed
+        final String utteranceId = UTTERANCE_ID_PREFIX + ++utteranceCounter;
+        currentUtteranceId.set( utteranceId );
+
+        float rate = rateController.getRate( getBacklogLength( null ), System.nanoTime() );
+
+        // The backlog may change a bit until the prefetched utterance is spoken, but its clip is still worth playing
+        if ( text.equals( prefetchedText ) && pitch == prefetchedPitch && Math.abs( rate - prefetchedRate ) <= MAX_PREFETCHED_RATE_DEVIATION ) {
+            rate = prefetchedRate;
+        }
+
+        prefetchedText = null;
+
+        final int result = speaker.speak( text, pitch, rate, utteranceId );
+        if ( result == Speaker.RESULT_FAILED ) {
+            currentUtteranceId.compareAndSet( utteranceId, null );
+
+            // The rest of the message makes no sense without this sentence
+            remainingSentences.clear();
+
+            metrics.onDropped( channel, SpeechMetrics.Drop.REJECTED );
+            return;
+        }
+
+        metrics.onSpeakStarted( utteranceId, channel, emitTime, postTime, handleTime, result == Speaker.RESULT_CACHED );
+
+        prefetchNext();
+    }
+
+    private void prefetchNext()
+    {
+        // The next sentence of the current message is spoken next unless it is interrupted
+        if ( !remainingSentences.isEmpty() ) {
+            prefetch( remainingSentences.peek(), currentPitch, null );
+            return;
+        }
+
+        // Otherwise, the most important pending message that has to wait for the current utterance is spoken next
+        final Channel nextChannel = getNextPendingChannel();
+        if ( nextChannel != null ) {
+            prefetch( pendingTexts[nextChannel.ordinal()], pendingPitches[nextChannel.ordinal()], nextChannel );
+        }
+    }
+
+    /**
+     * @param channel channel of the pending message to prefetch, null if it is the next sentence of the current message
+     */
+    private void prefetch( final String text, final float pitch, final Channel channel )
+    {
+        // The rate is chosen the same way as it will be chosen once the utterance is spoken, when its own message is no longer pending
+        final float rate = rateController.getRate( getBacklogLength( channel ), System.nanoTime() );
+
+        prefetchedText = text;
+        prefetchedPitch = pitch;
+        prefetchedRate = rate;
+
+        speaker.prefetch( text, pitch, rate );
+    }
+
+    /**
+     * @param excludedChannel channel whose pending message is not a part of the backlog, null if all pending messages are
+     * @return total length of the pending messages and the buffered messages, which have to wait for the next utterance
+     */
+    private int getBacklogLength( final Channel excludedChannel )
+    {
+        int backlogLength = 0;
+
+        for ( final Channel channel : CHANNELS ) {
+            if ( channel != excludedChannel && pendingTexts[channel.ordinal()] != null ) {
+                backlogLength += pendingTexts[channel.ordinal()].length();
+            }
+        }
+
+        for ( final BufferedMessage message : bufferedMessages ) {
+            backlogLength += message.text.length();
+        }
+
+        return backlogLength;
+    }
+
+    private static List<String> splitIntoSentences( final String text )
+    {
+        final List<String> sentences = new ArrayList<>();
+
+        final BreakIterator iter = BreakIterator.getSentenceInstance( Locale.getDefault() );
+        iter.setText( text );
+
+        int start = iter.first();
+        for ( int end = iter.next(); end != BreakIterator.DONE; end = iter.next() ) {
+            final String sentence = text.substring( start, end ).trim();
+            if ( sentence.length() < MIN_SENTENCE_LENGTH && end != text.length() ) {
+                // Keep the short sentence as a part of the next one
+                continue;
+            }
+
+            if ( !sentence.isEmpty() ) {
+                sentences.add( sentence );
+            }
+
+            start = end;
+        }
+
+        return sentences;
+    }
+}
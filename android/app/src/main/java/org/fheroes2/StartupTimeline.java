@@ -0,0 +1,162 @@
+/***************************************************************************
+ *   fheroes2: https://github.com/ihhub/fheroes2                           *
+ *   Copyright (C) 2025                                                    *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   This program is distributed in the hope that it will be useful,       *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with this program; if not, write to the                         *
+ *   Free Software Foundation, Inc.,                                       *
+ *   59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.             *
+ ***************************************************************************/
+
+package org.fheroes2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import android.os.Build;
+import android.os.SystemClock;
+import android.os.Trace;
+
+/**
+ * Timeline of the game startup. Each phase of the startup is marked with a trace section (so it can be examined using system tracing tools) and its
+ * start time and duration are recorded. Once the startup is complete, the recorded timeline is appended to the startup report file, which keeps only
+ * the last few reports.
+ */
+final class StartupTimeline
+{
+    static final String REPORTS_FILE_NAME = "startup_reports.txt";
+
+    // Number of the last startup reports kept in the report file
+    private static final int MAX_REPORTS = 10;
+
+    private static final String REPORTS_SEPARATOR = "\n\n";
+
+    // Maximum length of the trace section name allowed by Trace.beginSection()
+    private static final int MAX_TRACE_SECTION_NAME_LENGTH = 127;
+
+    /**
+     * Phase of the startup, should be closed on the same thread on which it was started.
+     */
+    final class Phase implements AutoCloseable
+    {
+        private final String name;
+        private final long startTime;
+
+        private Phase( final String name )
+        {
+            this.name = name;
+            this.startTime = SystemClock.elapsedRealtime();
+
+            beginTraceSection( name );
+        }
+
+        @Override
+        public void close()
+        {
+            Trace.endSection();
+
+            addEntry( String.format( Locale.ROOT, "%-32s %6d ms %6d ms", name, startTime - timelineStartTime, SystemClock.elapsedRealtime() - startTime ) );
+        }
+    }
+
+    private final long timelineStartTime = SystemClock.elapsedRealtime();
+
+    private final List<String> entries = new ArrayList<>();
+
+    Phase beginPhase( final String name )
+    {
+        return new Phase( name );
+    }
+
+    /**
+     * Records a point in time that is not a phase by itself, e.g. an event reported by the native code.
+     */
+    void mark( final String name )
+    {
+        addEntry( String.format( Locale.ROOT, "%-32s %6d ms", name, SystemClock.elapsedRealtime() - timelineStartTime ) );
+    }
+
+    /**
+     * Appends the report of this timeline to the given report file, removing the oldest reports if necessary.
+     */
+    void save( final File reportsFile, final String appVersion ) throws IOException
+    {
+        final StringBuilder report = new StringBuilder();
+
+        final String date = new SimpleDateFormat( "yyyy-MM-dd HH:mm:ss", Locale.ROOT ).format( new Date() );
+
+        report.append( String.format( Locale.ROOT, "%s, version %s, %s %s, Android %s (API %d)\n", date, appVersion, Build.MANUFACTURER, Build.MODEL,
+                                      Build.VERSION.RELEASE, Build.VERSION.SDK_INT ) );
+        report.append( String.format( Locale.ROOT, "%-32s %9s %9s\n", "Phase", "Start", "Duration" ) );
+
+        synchronized ( entries ) {
+            for ( final String entry : entries ) {
+                report.append( entry ).append( '\n' );
+            }
+        }
+
+        final List<String> reports = new ArrayList<>( Arrays.asList( readReports( reportsFile ) ) );
+        reports.add( report.toString().trim() );
+
+        while ( reports.size() > MAX_REPORTS ) {
+            reports.remove( 0 );
+        }
+
+        Files.write( reportsFile.toPath(), String.join( REPORTS_SEPARATOR, reports ).concat( "\n" ).getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    /**
+     * @return reports stored in the given report file, from the oldest to the newest
+     */
+    static String[] readReports( final File reportsFile ) throws IOException
+    {
+        if ( !reportsFile.exists() ) {
+            return new String[0];
+        }
+
+        final String contents = new String( Files.readAllBytes( reportsFile.toPath() ), StandardCharsets.UTF_8 ).trim();
+        if ( contents.isEmpty() ) {
+            return new String[0];
+        }
+
+        return contents.split( REPORTS_SEPARATOR );
+    }
+
+    /**
+     * Begins a trace section that is not recorded in the timeline. It is intended for short operations that are repeated many times during a phase.
+     */
+    static void beginTraceSection( final String name )
+    {
+        Trace.beginSection( name.length() > MAX_TRACE_SECTION_NAME_LENGTH ? name.substring( 0, MAX_TRACE_SECTION_NAME_LENGTH ) : name );
+    }
+
+    static void endTraceSection()
+    {
+        Trace.endSection();
+    }
+
+    private void addEntry( final String entry )
+    {
+        synchronized ( entries ) {
+            entries.add( entry );
+        }
+    }
+}
@@ -21,18 +21,22 @@
 package org.fheroes2;
 
 import java.io.File;
-import java.io.InputStream;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 import android.app.AlertDialog;
-import android.content.ContentResolver;
+import android.content.Context;
 import android.content.Intent;
+import android.graphics.Typeface;
 import android.net.Uri;
 import android.os.Bundle;
+import android.text.format.DateUtils;
+import android.text.format.Formatter;
 import android.util.Log;
 import android.view.View;
 import android.widget.Button;
 import android.widget.ProgressBar;
+import android.widget.ScrollView;
 import android.widget.TextView;
 
 import androidx.activity.result.ActivityResultLauncher;
@@ -42,6 +46,7 @@ import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModel;
 import androidx.lifecycle.ViewModelProvider;
 
@@ -49,28 +54,29 @@ public final class ToolsetActivity extends AppCompatActivity
 {
     public static final class ToolsetActivityViewModel extends ViewModel
     {
-        private enum BackgroundTaskResult
-        {
-            RESULT_NONE,
-            RESULT_SUCCESS,
-            RESULT_NO_ASSETS,
-            RESULT_ERROR
-        }
-
         private static final class Status
         {
             private boolean isHoMM2AssetsPresent;
             private boolean isBackgroundTaskExecuting;
-            private final BackgroundTaskResult backgroundTaskResult;
+            private final AssetInstallService.Result backgroundTaskResult;
             private final String backgroundTaskError;
-
-            private Status( final boolean isHoMM2AssetsPresent, final boolean isBackgroundTaskExecuting, final BackgroundTaskResult backgroundTaskResult,
-                            final String backgroundTaskError )
+            // Progress of the background task, makes sense only while the task is executing
+            private final long processedBytes;
+            private final long totalBytes;
+            private final long bytesPerSecond;
+            private final long etaSeconds;
+
+            private Status( final boolean isHoMM2AssetsPresent, final boolean isBackgroundTaskExecuting, final AssetInstallService.Result backgroundTaskResult,
+                            final String backgroundTaskError, final long processedBytes, final long totalBytes, final long bytesPerSecond, final long etaSeconds )
             {
                 this.isHoMM2AssetsPresent = isHoMM2AssetsPresent;
                 this.isBackgroundTaskExecuting = isBackgroundTaskExecuting;
                 this.backgroundTaskResult = backgroundTaskResult;
                 this.backgroundTaskError = backgroundTaskError;
+                this.processedBytes = processedBytes;
+                this.totalBytes = totalBytes;
+                this.bytesPerSecond = bytesPerSecond;
+                this.etaSeconds = etaSeconds;
             }
 
             private Status setIsHoMM2AssetsPresent( final boolean isHoMM2AssetsPresent )
@@ -89,7 +95,22 @@ public final class ToolsetActivity extends AppCompatActivity
             }
         }
 
-        private final MutableLiveData<Status> liveStatus = new MutableLiveData<>( new Status( false, false, BackgroundTaskResult.RESULT_NONE, "" ) );
+        private final MutableLiveData<Status> liveStatus
+            = new MutableLiveData<>( new Status( false, false, AssetInstallService.Result.RESULT_NONE, "", 0, -1, 0, -1 ) );
+
+        // Assets are extracted by the AssetInstallService, which can outlive this view model
+        private final Observer<AssetInstallService.State> assetInstallStateObserver = this::updateAssetInstallState;
+
+        public ToolsetActivityViewModel()
+        {
+            AssetInstallService.liveState.observeForever( assetInstallStateObserver );
+        }
+
+        @Override
+        protected void onCleared()
+        {
+            AssetInstallService.liveState.removeObserver( assetInstallStateObserver );
+        }
 
         private void validateAssets( final File externalFilesDir )
         {
@@ -98,34 +119,56 @@ public final class ToolsetActivity extends AppCompatActivity
             liveStatus.setValue( status.setIsHoMM2AssetsPresent( HoMM2AssetManagement.isHoMM2AssetsPresent( externalFilesDir ) ) );
         }
 
-        private void extractAssets( final File externalFilesDir, final File cacheDir, final Uri zipFileUri, final ContentResolver contentResolver )
+        private void extractAssets( final Context context, final Uri zipFileUri, final boolean isClosingGameSessionConfirmed )
+        {
+            if ( setBackgroundTaskExecuting() ) {
+                AssetInstallService.extractAssetsFromZip( context, zipFileUri, isClosingGameSessionConfirmed );
+            }
+        }
+
+        private void importAssets( final Context context, final Uri treeUri, final boolean isClosingGameSessionConfirmed )
+        {
+            if ( setBackgroundTaskExecuting() ) {
+                AssetInstallService.importAssetsFromDocumentTree( context, treeUri, isClosingGameSessionConfirmed );
+            }
+        }
+
+        /**
+         * @return false if some background task is already executing, otherwise returns true
+         */
+        private boolean setBackgroundTaskExecuting()
         {
             final Status status = Objects.requireNonNull( liveStatus.getValue() );
 
             if ( status.isBackgroundTaskExecuting ) {
-                return;
+                return false;
             }
 
             liveStatus.setValue( status.setIsBackgroundTaskExecuting( true ) );
 
-            new Thread( () -> {
-                try ( final InputStream in = contentResolver.openInputStream( zipFileUri ) ) {
-                    if ( HoMM2AssetManagement.extractHoMM2AssetsFromZip( externalFilesDir, cacheDir, in ) ) {
-                        liveStatus.postValue(
-                            new Status( HoMM2AssetManagement.isHoMM2AssetsPresent( externalFilesDir ), false, BackgroundTaskResult.RESULT_SUCCESS, "" ) );
-                    }
-                    else {
-                        liveStatus.postValue(
-                            new Status( HoMM2AssetManagement.isHoMM2AssetsPresent( externalFilesDir ), false, BackgroundTaskResult.RESULT_NO_ASSETS, "" ) );
-                    }
-                }
-                catch ( final Exception ex ) {
-                    Log.e( "fheroes2", "Failed to extract the assets.", ex );
+            return true;
+        }
 
-                    liveStatus.postValue( new Status( HoMM2AssetManagement.isHoMM2AssetsPresent( externalFilesDir ), false, BackgroundTaskResult.RESULT_ERROR,
-                                                      String.format( "%s", ex ) ) );
-                }
-            } ).start();
+        private void updateAssetInstallState( final AssetInstallService.State state )
+        {
+            final Status status = Objects.requireNonNull( liveStatus.getValue() );
+
+            if ( state.isExecuting ) {
+                liveStatus.setValue( new Status( status.isHoMM2AssetsPresent, true, AssetInstallService.Result.RESULT_NONE, "", state.processedBytes,
+                                                 state.totalBytes, state.bytesPerSecond, state.getEtaSeconds() ) );
+
+                return;
+            }
+
+            // No assets have been extracted yet
+            if ( state.result == AssetInstallService.Result.RESULT_NONE ) {
+                return;
+            }
+
+            liveStatus.setValue( new Status( state.isHoMM2AssetsPresent, false, state.result, state.error, 0, -1, 0, -1 ) );
+
+            // The result is now kept by this view model, it should not be delivered again to the view models of the future instances of this activity
+            AssetInstallService.consumeFinalState();
         }
     }
 
@@ -137,7 +180,16 @@ public final class ToolsetActivity extends AppCompatActivity
             return;
         }
 
-        viewModel.extractAssets( getExternalFilesDir( null ), getCacheDir(), result, getContentResolver() );
+        runAfterClosingGameSessionConfirmed( isConfirmed -> viewModel.extractAssets( this, result, isConfirmed ) );
+    } );
+
+    private final ActivityResultLauncher<Uri> assetDirChooserLauncher = registerForActivityResult( new ActivityResultContracts.OpenDocumentTree(), result -> {
+        // No directory was selected
+        if ( result == null ) {
+            return;
+        }
+
+        runAfterClosingGameSessionConfirmed( isConfirmed -> viewModel.importAssets( this, result, isConfirmed ) );
     } );
 
     @Override
@@ -167,6 +219,42 @@ public final class ToolsetActivity extends AppCompatActivity
         viewModel.validateAssets( getExternalFilesDir( null ) );
     }
 
+    /**
+     * HoMM2 assets cannot be replaced while the game process is running, so if the game session (which may have unsaved progress) is running, the
+     * user is asked whether it can be closed. The action is not performed if the user refuses. The game session is checked on a worker thread,
+     * because it requires disk access, and the action is performed on the main thread.
+     *
+     * @param action action that receives true if the user has agreed to close the running game session
+     */
+    private void runAfterClosingGameSessionConfirmed( final Consumer<Boolean> action )
+    {
+        final Context applicationContext = getApplicationContext();
+
+        new Thread( () -> {
+            final boolean isGameSessionActive = GameSession.isActive( applicationContext );
+
+            runOnUiThread( () -> {
+                // The activity may be destroyed while the game session is checked
+                if ( isFinishing() || isDestroyed() ) {
+                    return;
+                }
+
+                if ( !isGameSessionActive ) {
+                    action.accept( false );
+                    return;
+                }
+
+                ( new AlertDialog.Builder( this ) )
+                    .setTitle( R.string.activity_toolset_close_game_session_title )
+                    .setMessage( R.string.activity_toolset_close_game_session_message )
+                    .setPositiveButton( R.string.activity_toolset_close_game_session_positive_btn_text, ( dialog, which ) -> action.accept( true ) )
+                    .setNegativeButton( R.string.activity_toolset_close_game_session_negative_btn_text, ( dialog, which ) -> {} )
+                    .create()
+                    .show();
+            } );
+        } ).start();
+    }
+
     @SuppressWarnings( "java:S1172" ) // SonarQube warning "Remove unused method parameter"
     public void startGameButtonClicked( final View view )
     {
@@ -194,6 +282,24 @@ public final class ToolsetActivity extends AppCompatActivity
         }
     }
 
+    @SuppressWarnings( "java:S1172" ) // SonarQube warning "Remove unused method parameter"
+    public void importHoMM2AssetsButtonClicked( final View view )
+    {
+        try {
+            assetDirChooserLauncher.launch( null );
+        }
+        catch ( final Exception ex ) {
+            Log.e( "fheroes2", "Failed to import HoMM2 assets.", ex );
+
+            ( new AlertDialog.Builder( this ) )
+                .setTitle( R.string.activity_toolset_import_homm2_assets_error_title )
+                .setMessage( R.string.activity_toolset_import_homm2_assets_error_message )
+                .setPositiveButton( R.string.activity_toolset_import_homm2_assets_error_positive_btn_text, ( dialog, which ) -> {} )
+                .create()
+                .show();
+        }
+    }
+
     @SuppressWarnings( "java:S1172" ) // SonarQube warning "Remove unused method parameter"
     public void downloadHoMM2DemoButtonClicked( final View view )
     {
@@ -224,21 +330,73 @@ public final class ToolsetActivity extends AppCompatActivity
         startActivity( new Intent( this, MapFileManagerActivity.class ) );
     }
 
+    @SuppressWarnings( "java:S1172" ) // SonarQube warning "Remove unused method parameter"
+    public void startupReportsButtonClicked( final View view )
+    {
+        final File reportsFile = new File( getExternalFilesDir( null ), StartupTimeline.REPORTS_FILE_NAME );
+
+        new Thread( () -> {
+            final StringBuilder message = new StringBuilder();
+
+            try {
+                final String[] reports = StartupTimeline.readReports( reportsFile );
+
+                if ( reports.length == 0 ) {
+                    message.append( getString( R.string.activity_toolset_startup_reports_no_reports ) );
+                }
+                else {
+                    message.append( getString( R.string.activity_toolset_startup_reports_message, reportsFile.getAbsolutePath() ) );
+
+                    for ( int i = reports.length - 1; i >= 0; --i ) {
+                        message.append( "\n\n" ).append( reports[i] );
+                    }
+                }
+            }
+            catch ( final Exception ex ) {
+                Log.e( "fheroes2", "Failed to read the startup reports.", ex );
+
+                message.append( getString( R.string.activity_toolset_startup_reports_error ) );
+            }
+
+            runOnUiThread( () -> {
+                final TextView messageTextView = new TextView( this );
+                messageTextView.setPadding( 48, 24, 48, 24 );
+                messageTextView.setTextIsSelectable( true );
+                // Reports are formatted as tables
+                messageTextView.setTypeface( Typeface.MONOSPACE );
+                messageTextView.setText( message );
+
+                final ScrollView scrollView = new ScrollView( this );
+                scrollView.addView( messageTextView );
+
+                ( new AlertDialog.Builder( this ) )
+                    .setTitle( R.string.activity_toolset_startup_reports_title )
+                    .setView( scrollView )
+                    .setPositiveButton( R.string.activity_toolset_startup_reports_positive_btn_text, ( dialog, which ) -> {} )
+                    .create()
+                    .show();
+            } );
+        } ).start();
+    }
+
     private void updateUI( final ToolsetActivityViewModel.Status modelStatus )
     {
         final Button startGameButton = findViewById( R.id.activity_toolset_start_game_btn );
         final Button extractHoMM2AssetsButton = findViewById( R.id.activity_toolset_extract_homm2_assets_btn );
+        final Button importHoMM2AssetsButton = findViewById( R.id.activity_toolset_import_homm2_assets_btn );
         final Button downloadHoMM2DemoButton = findViewById( R.id.activity_toolset_download_homm2_demo_btn );
         final Button saveFileManagerButton = findViewById( R.id.activity_toolset_save_file_manager_btn );
         final Button mapFileManagerButton = findViewById( R.id.activity_toolset_map_file_manager_btn );
 
         final TextView gameStatusTextView = findViewById( R.id.activity_toolset_game_status_lbl );
         final TextView lastTaskStatusTextView = findViewById( R.id.activity_toolset_last_task_status_lbl );
+        final TextView backgroundTaskProgressTextView = findViewById( R.id.activity_toolset_background_task_progress_lbl );
 
         final ProgressBar backgroundTaskProgressBar = findViewById( R.id.activity_toolset_background_task_pb );
 
         startGameButton.setEnabled( !modelStatus.isBackgroundTaskExecuting && modelStatus.isHoMM2AssetsPresent );
         extractHoMM2AssetsButton.setEnabled( !modelStatus.isBackgroundTaskExecuting );
+        importHoMM2AssetsButton.setEnabled( !modelStatus.isBackgroundTaskExecuting );
         downloadHoMM2DemoButton.setEnabled( !modelStatus.isBackgroundTaskExecuting );
         saveFileManagerButton.setEnabled( !modelStatus.isBackgroundTaskExecuting );
         mapFileManagerButton.setEnabled( !modelStatus.isBackgroundTaskExecuting );
@@ -260,8 +418,27 @@ public final class ToolsetActivity extends AppCompatActivity
             break;
         }
 
+        // Progress is not known until the background task actually starts processing data
+        final boolean isProgressKnown = modelStatus.isBackgroundTaskExecuting && modelStatus.processedBytes > 0;
+
+        if ( isProgressKnown ) {
+            if ( modelStatus.totalBytes > 0 && modelStatus.etaSeconds >= 0 ) {
+                backgroundTaskProgressTextView.setText( getString( R.string.activity_toolset_background_task_progress_lbl_text,
+                                                                   Formatter.formatShortFileSize( this, modelStatus.processedBytes ),
+                                                                   Formatter.formatShortFileSize( this, modelStatus.totalBytes ),
+                                                                   Formatter.formatShortFileSize( this, modelStatus.bytesPerSecond ),
+                                                                   DateUtils.formatElapsedTime( modelStatus.etaSeconds ) ) );
+            }
+            else {
+                backgroundTaskProgressTextView.setText( getString( R.string.activity_toolset_background_task_progress_lbl_text_no_eta,
+                                                                   Formatter.formatShortFileSize( this, modelStatus.processedBytes ),
+                                                                   Formatter.formatShortFileSize( this, modelStatus.bytesPerSecond ) ) );
+            }
+        }
+
         gameStatusTextView.setVisibility( modelStatus.isHoMM2AssetsPresent ? View.GONE : View.VISIBLE );
         backgroundTaskProgressBar.setVisibility( !modelStatus.isBackgroundTaskExecuting ? View.GONE : View.VISIBLE );
+        backgroundTaskProgressTextView.setVisibility( isProgressKnown ? View.VISIBLE : View.GONE );
         lastTaskStatusTextView.setVisibility( modelStatus.isBackgroundTaskExecuting ? View.GONE : View.VISIBLE );
     }
 }
@@ -0,0 +1,140 @@
+/***************************************************************************
+ *   fheroes2: https://github.com/ihhub/fheroes2                           *
+ *   Copyright (C) 2025                                                    *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   This program is distributed in the hope that it will be useful,       *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with this program; if not, write to the                         *
+ *   Free Software Foundation, Inc.,                                       *
+ *   59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.             *
+ ***************************************************************************/
+
+package org.fheroes2;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+import android.speech.tts.Voice;
+import android.util.Log;
+
+/**
+ * Additional TTS engine, which synthesizes the next utterance into the utterance cache while the main TTS engine speaks the current one, so the
+ * next utterance is played right away once the current one is finished. Each engine takes its own share of memory in the TTS service, so the
+ * additional engine is not created on the devices with little memory, and it is shut down once the system runs low on memory. In both cases
+ * the main TTS engine keeps working alone.
+ */
+final class TtsEnginePool
+{
+    // Devices that allow less memory per application than this (in MB) use only the main TTS engine
+    private static final int MIN_MEMORY_CLASS_MB = 192;
+    // Additional TTS engine is not created if the system has less available memory than this
+    private static final long MIN_AVAILABLE_MEMORY_BYTES = 512L * 1024 * 1024;
+
+    private TextToSpeech prefetchEngine = null;
+    private boolean isReleased = false;
+
+    /**
+     * @return true if the device has enough memory for the additional TTS engine
+     */
+    static boolean isDoubleBufferingAllowed( final Context context )
+    {
+        final ActivityManager activityManager = (ActivityManager)context.getSystemService( Context.ACTIVITY_SERVICE );
+        if ( activityManager == null || activityManager.isLowRamDevice() || activityManager.getMemoryClass() < MIN_MEMORY_CLASS_MB ) {
+            return false;
+        }
+
+        final ActivityManager.MemoryInfo memoryInfo = new ActivityManager.MemoryInfo();
+        activityManager.getMemoryInfo( memoryInfo );
+
+        return !memoryInfo.lowMemory && memoryInfo.availMem >= MIN_AVAILABLE_MEMORY_BYTES;
+    }
+
+    /**
+     * Creates the additional TTS engine and waits for its initialization, so it should be called on a background thread. The clips of the utterance
+     * cache are keyed by the voice of the main TTS engine, so the additional engine uses the same voice, or it is not used at all.
+     *
+     * @param voice voice of the main TTS engine, or null if it is unknown
+     * @param locale language of the main TTS engine, it is used only if its voice is unknown
+     */
+    void start( final Context context, final Voice voice, final Locale locale, final UtteranceProgressListener listener ) throws InterruptedException
+    {
+        final BlockingQueue<Integer> initStatus = new ArrayBlockingQueue<>( 1 );
+        final TextToSpeech engine = new TextToSpeech( context, initStatus::offer );
+
+        if ( initStatus.take() != TextToSpeech.SUCCESS ) {
+            Log.w( "fheroes2", "Failed to initialize the additional TTS engine." );
+
+            engine.shutdown();
+            return;
+        }
+
+        if ( voice == null ) {
+            engine.setLanguage( locale );
+        }
+        else if ( engine.setVoice( voice ) != TextToSpeech.SUCCESS ) {
+            Log.w( "fheroes2", String.format( "The additional TTS engine does not support the voice %s.", voice.getName() ) );
+
+            engine.shutdown();
+            return;
+        }
+
+        engine.setOnUtteranceProgressListener( listener );
+
+        synchronized ( this ) {
+            // The system may have run low on memory during the initialization
+            if ( !isReleased ) {
+                prefetchEngine = engine;
+                return;
+            }
+        }
+
+        engine.shutdown();
+    }
+
+    /**
+     * @return the additional TTS engine, or null if it is not available
+     */
+    synchronized TextToSpeech getPrefetchEngine()
+    {
+        return prefetchEngine;
+    }
+
+    /**
+     * Shuts down the additional TTS engine for the rest of the session.
+     *
+     * @return true if the additional TTS engine was running
+     */
+    boolean release()
+    {
+        final TextToSpeech engine;
+
+        synchronized ( this ) {
+            isReleased = true;
+
+            engine = prefetchEngine;
+            prefetchEngine = null;
+        }
+
+        if ( engine == null ) {
+            return false;
+        }
+
+        engine.shutdown();
+
+        return true;
+    }
+}
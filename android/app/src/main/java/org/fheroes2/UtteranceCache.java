@@ -0,0 +1,853 @@
+/***************************************************************************
+ *   fheroes2: https://github.com/ihhub/fheroes2                           *
+ *   Copyright (C) 2025                                                    *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   This program is distributed in the hope that it will be useful,       *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with this program; if not, write to the                         *
+ *   Free Software Foundation, Inc.,                                       *
+ *   59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.             *
+ ***************************************************************************/
+
+package org.fheroes2;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import android.media.AudioAttributes;
+import android.media.SoundPool;
+import android.os.Bundle;
+import android.speech.tts.TextToSpeech;
+import android.util.Log;
+
+/**
+ * Cache of the pre-synthesized clips of the most frequent screen reader messages (names of terrains and objects, button labels, etc). Such clips are
+ * played using SoundPool right away instead of being synthesized by the TTS engine each time. Clips are synthesized in the background while the
+ * TTS engine is idle, starting with the messages that were requested most often (including the previous game sessions). Both the clips stored on
+ * disk and the clips loaded into memory are limited by their own budgets and are evicted in the LRU order.
+ * <p>
+ * Clips of the messages that are about to be spoken (e.g. the next sentence of a long dialog text) may also be prefetched using the additional TTS
+ * engine (see TtsEnginePool) while the main TTS engine speaks the current message.
+ * <p>
+ * All disk operations (loading the index, storing the synthesized clips, opening the clips for SoundPool and evicting them) are performed on a
+ * dedicated I/O thread. Only the in-memory index is updated under the monitor of this cache, so play() never waits for the disk.
+ */
+final class UtteranceCache
+{
+    interface Listener
+    {
+        /**
+         * Called on an arbitrary thread once the clip played instead of the given utterance has been finished.
+         */
+        void onClipFinished( final String utteranceId );
+    }
+
+    private static final long DISK_BUDGET_BYTES = 32L * 1024 * 1024;
+    private static final long MEMORY_BUDGET_BYTES = 8L * 1024 * 1024;
+
+    // Long messages (e.g. dialog bodies) are rarely repeated, so they are not cached
+    private static final int MAX_TEXT_LENGTH = 100;
+    // Longer messages are not prefetched, since SoundPool cannot play long clips
+    private static final int MAX_PREFETCH_TEXT_LENGTH = 250;
+    // Message should be requested at least this number of times to be synthesized
+    private static final int MIN_REQUESTS_TO_SYNTHESIZE = 3;
+
+    private static final int MAX_TRACKED_PHRASES = 500;
+    // Number of the most frequent phrases saved for the next game session
+    private static final int MAX_SAVED_PHRASES = 200;
+
+    private static final String CLIP_FILE_EXTENSION = ".wav";
+    private static final String TEMP_FILE_EXTENSION = ".tmp";
+    private static final String PHRASES_FILE_NAME = "phrases.txt";
+
+    private static final String SYNTHESIS_ID_PREFIX = "f2_synth_";
+
+    private static final class Clip
+    {
+        private final File file;
+        private final long size;
+        private final long durationMs;
+
+        private int soundId = 0;
+        // The clip is either being opened by SoundPool or already has its sound ID
+        private boolean isLoadRequested = false;
+        private boolean isLoaded = false;
+
+        private Clip( final File file, final long size, final long durationMs )
+        {
+            this.file = file;
+            this.size = size;
+            this.durationMs = durationMs;
+        }
+    }
+
+    private static final class Phrase
+    {
+        private final String text;
+        private final float pitch;
+        private final float rate;
+
+        private int requests = 0;
+
+        private Phrase( final String text, final float pitch, final float rate )
+        {
+            this.text = text;
+            this.pitch = pitch;
+            this.rate = rate;
+        }
+    }
+
+    private final File cacheDir;
+    // Identifies the voice used to synthesize the clips, the clips synthesized with other voices are never played
+    private final String voiceTag;
+    private final Listener listener;
+
+    private final SoundPool soundPool;
+    // Used to report the completion of the clips, since SoundPool does not report it by itself
+    private final ScheduledExecutorService completionExecutor = Executors.newSingleThreadScheduledExecutor( runnable -> {
+        final Thread thread = new Thread( runnable, "UtteranceCache" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor( runnable -> {
+        final Thread thread = new Thread( runnable, "UtteranceCacheIO" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
+    // Clips are kept in the LRU order, both maps are keyed by the clip key
+    private final LinkedHashMap<String, Clip> clips = new LinkedHashMap<>( 16, 0.75f, true );
+    private final Map<Integer, Clip> clipsBySoundId = new HashMap<>();
+    private final LinkedHashMap<String, Phrase> phrases = new LinkedHashMap<String, Phrase>( 16, 0.75f, true ) {
+        @Override
+        protected boolean removeEldestEntry( final Map.Entry<String, Phrase> eldest )
+        {
+            return size() > MAX_TRACKED_PHRASES;
+        }
+    };
+
+    private long diskUsage = 0;
+    private long memoryUsage = 0;
+
+    private boolean isIndexLoadStarted = false;
+    private boolean isIndexLoaded = false;
+
+    // Keys of the synthesized clips that are being stored on the I/O thread, they should not be synthesized again meanwhile
+    private final Set<String> storingKeys = new HashSet<>();
+
+    // Number of the clips that are being opened by SoundPool, their sound IDs are not known yet
+    private int pendingClipLoads = 0;
+    // Load statuses that SoundPool has reported before the sound ID of the clip was returned to the I/O thread
+    private final Map<Integer, Integer> earlyLoadStatuses = new HashMap<>();
+
+    private int currentStreamId = 0;
+    // Reports the completion of the clip being played, it is cancelled if the clip is stopped before it is finished
+    private ScheduledFuture<?> currentCompletion = null;
+
+    // Synthesis of the frequent message by the main TTS engine
+    private String synthesisId = null;
+    private String synthesisKey = null;
+    // Synthesis of the upcoming message by the additional TTS engine
+    private String prefetchId = null;
+    private String prefetchKey = null;
+
+    private long synthesisCounter = 0;
+
+    UtteranceCache( final File cacheDir, final String voiceTag, final AudioAttributes audioAttributes, final Listener listener )
+    {
+        this.cacheDir = cacheDir;
+        this.voiceTag = voiceTag;
+        this.listener = listener;
+
+        soundPool = new SoundPool.Builder().setMaxStreams( 1 ).setAudioAttributes( audioAttributes ).build();
+        soundPool.setOnLoadCompleteListener( ( pool, soundId, status ) -> onClipLoaded( soundId, status ) );
+    }
+
+    static boolean isSynthesisId( final String utteranceId )
+    {
+        return utteranceId != null && utteranceId.startsWith( SYNTHESIS_ID_PREFIX );
+    }
+
+    /**
+     * Plays the cached clip of the given message, if it is available. Each call is counted as a request of this message, so it may be synthesized
+     * later. Should be called on the speech dispatcher thread.
+     *
+     * @return true if the clip is being played
+     */
+    synchronized boolean play( final String text, final float pitch, final float rate, final String utteranceId )
+    {
+        stopPlayback();
+
+        if ( text.length() > MAX_PREFETCH_TEXT_LENGTH ) {
+            return false;
+        }
+
+        loadIndex();
+
+        final String key = getKey( text, pitch, rate );
+
+        // Long messages may be prefetched, but their frequency is not tracked
+        if ( text.length() <= MAX_TEXT_LENGTH ) {
+            Phrase phrase = phrases.get( key );
+            if ( phrase == null ) {
+                phrase = new Phrase( text, pitch, rate );
+                phrases.put( key, phrase );
+            }
+
+            ++phrase.requests;
+        }
+
+        final Clip clip = clips.get( key );
+        if ( clip == null ) {
+            return false;
+        }
+
+        if ( !clip.isLoaded ) {
+            // The clip will be played next time
+            loadClip( clip );
+
+            return false;
+        }
+
+        currentStreamId = soundPool.play( clip.soundId, 1.0f, 1.0f, 1, 0, 1.0f );
+        if ( currentStreamId == 0 ) {
+            return false;
+        }
+
+        currentCompletion = completionExecutor.schedule( () -> listener.onClipFinished( utteranceId ), clip.durationMs, TimeUnit.MILLISECONDS );
+
+        return true;
+    }
+
+    synchronized void stopPlayback()
+    {
+        if ( currentCompletion != null ) {
+            // The interrupted clip is not finished, so its completion should not be reported for the utterance that replaces it
+            currentCompletion.cancel( false );
+            currentCompletion = null;
+        }
+
+        if ( currentStreamId != 0 ) {
+            soundPool.stop( currentStreamId );
+            currentStreamId = 0;
+        }
+    }
+
+    /**
+     * Starts the synthesis of the most frequently requested message that is not cached yet. Should be called on the speech dispatcher thread when
+     * the TTS engine is idle.
+     *
+     * @return true if the synthesis has been started or is already in progress
+     */
+    synchronized boolean synthesizeNext( final TextToSpeech tts )
+    {
+        if ( synthesisId != null ) {
+            return true;
+        }
+
+        loadIndex();
+
+        // Otherwise, the clip that is already stored on disk could be synthesized again
+        if ( !isIndexLoaded ) {
+            return false;
+        }
+
+        String key = null;
+        Phrase phrase = null;
+
+        for ( final Map.Entry<String, Phrase> entry : phrases.entrySet() ) {
+            final Phrase candidate = entry.getValue();
+
+            if ( candidate.requests < MIN_REQUESTS_TO_SYNTHESIZE || clips.containsKey( entry.getKey() ) || storingKeys.contains( entry.getKey() )
+                 || entry.getKey().equals( prefetchKey ) ) {
+                continue;
+            }
+
+            if ( phrase == null || candidate.requests > phrase.requests ) {
+                key = entry.getKey();
+                phrase = candidate;
+            }
+        }
+
+        if ( phrase == null ) {
+            return false;
+        }
+
+        synthesisId = SYNTHESIS_ID_PREFIX + ++synthesisCounter;
+        synthesisKey = key;
+
+        final Bundle params = new Bundle();
+        params.putString( TextToSpeech.Engine.KEY_PARAM_UTTERANCE_ID, synthesisId );
+
+        // The pitch and the rate are set before each utterance (see GameActivity.speakWithTts()), so they don't affect other utterances
+        tts.setPitch( phrase.pitch );
+        tts.setSpeechRate( phrase.rate );
+
+        if ( tts.synthesizeToFile( phrase.text, params, getTempFile( key ), synthesisId ) != TextToSpeech.SUCCESS ) {
+            // Do not try to synthesize this phrase again during this session
+            phrases.remove( key );
+
+            synthesisId = null;
+            synthesisKey = null;
+
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Starts the synthesis of the message that is about to be spoken using the given additional TTS engine, unless its clip is already cached or
+     * another message is being prefetched. Should be called on the speech dispatcher thread.
+     */
+    synchronized void prefetch( final TextToSpeech engine, final String text, final float pitch, final float rate )
+    {
+        if ( prefetchId != null || text.length() > MAX_PREFETCH_TEXT_LENGTH ) {
+            return;
+        }
+
+        loadIndex();
+
+        if ( !isIndexLoaded ) {
+            return;
+        }
+
+        final String key = getKey( text, pitch, rate );
+        if ( clips.containsKey( key ) || storingKeys.contains( key ) || key.equals( synthesisKey ) ) {
+            return;
+        }
+
+        prefetchId = SYNTHESIS_ID_PREFIX + ++synthesisCounter;
+        prefetchKey = key;
+
+        final Bundle params = new Bundle();
+        params.putString( TextToSpeech.Engine.KEY_PARAM_UTTERANCE_ID, prefetchId );
+
+        // The additional TTS engine is used only by this method, so its settings are not shared with other utterances
+        engine.setPitch( pitch );
+        engine.setSpeechRate( rate );
+
+        if ( engine.synthesizeToFile( text, params, getTempFile( key ), prefetchId ) != TextToSpeech.SUCCESS ) {
+            prefetchId = null;
+            prefetchKey = null;
+        }
+    }
+
+    /**
+     * Forgets the prefetch in progress, should be called once the additional TTS engine is shut down, since it never reports the completion of
+     * the prefetch after that.
+     */
+    synchronized void cancelPrefetch()
+    {
+        if ( prefetchKey != null ) {
+            final File tempFile = getTempFile( prefetchKey );
+
+            ioExecutor.execute( () -> {
+                if ( tempFile.exists() && !tempFile.delete() ) {
+                    Log.w( "fheroes2", "Failed to delete the temporary file of the utterance cache." );
+                }
+            } );
+        }
+
+        prefetchId = null;
+        prefetchKey = null;
+    }
+
+    /**
+     * This method is called on one of the TTS engine threads. The synthesized clip is stored on the I/O thread.
+     *
+     * @return false if the given utterance is not a synthesis started by this cache
+     */
+    boolean onSynthesisFinished( final String utteranceId, final boolean isSuccessful )
+    {
+        if ( !isSynthesisId( utteranceId ) ) {
+            return false;
+        }
+
+        final String key;
+
+        synchronized ( this ) {
+            if ( utteranceId.equals( synthesisId ) ) {
+                key = synthesisKey;
+
+                synthesisId = null;
+                synthesisKey = null;
+            }
+            else if ( utteranceId.equals( prefetchId ) ) {
+                key = prefetchKey;
+
+                prefetchId = null;
+                prefetchKey = null;
+            }
+            else {
+                return true;
+            }
+
+            storingKeys.add( key );
+        }
+
+        ioExecutor.execute( () -> storeClip( key, isSuccessful ) );
+
+        return true;
+    }
+
+    /**
+     * Saves the most frequently requested messages, so that they can be synthesized during the next game session even before they are requested.
+     */
+    void savePhrases()
+    {
+        final List<Phrase> phrasesToSave;
+
+        synchronized ( this ) {
+            if ( !isIndexLoaded ) {
+                return;
+            }
+
+            phrasesToSave = new ArrayList<>( phrases.values() );
+        }
+
+        phrasesToSave.sort( ( lhs, rhs ) -> Integer.compare( rhs.requests, lhs.requests ) );
+
+        final StringBuilder contents = new StringBuilder();
+
+        for ( int i = 0; i < phrasesToSave.size() && i < MAX_SAVED_PHRASES; ++i ) {
+            final Phrase phrase = phrasesToSave.get( i );
+
+            contents.append( String.format( Locale.ROOT, "%d\t%.2f\t%.2f\t%s\n", phrase.requests, phrase.pitch, phrase.rate,
+                                            phrase.text.replace( '\n', ' ' ) ) );
+        }
+
+        try {
+            Files.write( new File( cacheDir, PHRASES_FILE_NAME ).toPath(), contents.toString().getBytes( StandardCharsets.UTF_8 ) );
+        }
+        catch ( final IOException ex ) {
+            Log.e( "fheroes2", "Failed to save the list of frequent messages.", ex );
+        }
+    }
+
+    /**
+     * Starts loading the clips and the list of frequent messages saved during the previous game sessions on the I/O thread. The index is loaded on
+     * the first use, so that the disk is not accessed on the main thread. Clips are stored only after the index is loaded, since they are stored
+     * on the same thread.
+     */
+    private void loadIndex()
+    {
+        if ( isIndexLoadStarted ) {
+            return;
+        }
+
+        isIndexLoadStarted = true;
+
+        ioExecutor.execute( this::readIndex );
+    }
+
+    /**
+     * This method is called on the I/O thread.
+     */
+    private void readIndex()
+    {
+        if ( !cacheDir.isDirectory() && !cacheDir.mkdirs() ) {
+            Log.e( "fheroes2", "Failed to create the directory of the utterance cache." );
+            return;
+        }
+
+        // Both lists are in the LRU order
+        final List<Map.Entry<String, Clip>> loadedClips = new ArrayList<>();
+        final List<Map.Entry<String, Phrase>> loadedPhrases = new ArrayList<>();
+
+        final File[] files = cacheDir.listFiles();
+        if ( files != null ) {
+            // The oldest clips should be evicted first
+            final List<File> clipFiles = new ArrayList<>();
+
+            for ( final File file : files ) {
+                if ( file.getName().endsWith( CLIP_FILE_EXTENSION ) ) {
+                    clipFiles.add( file );
+                }
+                else if ( file.getName().endsWith( TEMP_FILE_EXTENSION ) && !file.delete() ) {
+                    Log.w( "fheroes2", "Failed to delete the temporary file of the utterance cache." );
+                }
+            }
+
+            clipFiles.sort( ( lhs, rhs ) -> Long.compare( lhs.lastModified(), rhs.lastModified() ) );
+
+            for ( final File file : clipFiles ) {
+                final String name = file.getName();
+
+                try {
+                    final Clip clip = new Clip( file, file.length(), readWavDuration( file ) );
+
+                    loadedClips.add( new AbstractMap.SimpleImmutableEntry<>( name.substring( 0, name.length() - CLIP_FILE_EXTENSION.length() ), clip ) );
+                }
+                catch ( final IOException ex ) {
+                    Log.w( "fheroes2", "Failed to read the cached clip.", ex );
+
+                    if ( !file.delete() ) {
+                        Log.w( "fheroes2", "Failed to delete the cached clip." );
+                    }
+                }
+            }
+        }
+
+        final File phrasesFile = new File( cacheDir, PHRASES_FILE_NAME );
+
+        if ( phrasesFile.exists() ) {
+            try {
+                // The least frequent phrases come last, but they should be the eldest ones in the LRU order
+                final List<String> lines = Files.readAllLines( phrasesFile.toPath(), StandardCharsets.UTF_8 );
+
+                for ( int i = lines.size() - 1; i >= 0; --i ) {
+                    final String[] fields = lines.get( i ).split( "\t", 4 );
+                    if ( fields.length != 4 ) {
+                        continue;
+                    }
+
+                    final Phrase phrase = new Phrase( fields[3], Float.parseFloat( fields[1] ), Float.parseFloat( fields[2] ) );
+                    phrase.requests = Integer.parseInt( fields[0] );
+
+                    loadedPhrases.add( new AbstractMap.SimpleImmutableEntry<>( getKey( phrase.text, phrase.pitch, phrase.rate ), phrase ) );
+                }
+            }
+            catch ( final IOException | NumberFormatException ex ) {
+                Log.w( "fheroes2", "Failed to load the list of frequent messages.", ex );
+            }
+        }
+
+        final List<File> evictedFiles;
+
+        synchronized ( this ) {
+            // No clips can be stored before the index is loaded, but the phrases may have been requested meanwhile, and they are the most recent ones
+            for ( final Map.Entry<String, Clip> entry : loadedClips ) {
+                clips.put( entry.getKey(), entry.getValue() );
+                diskUsage += entry.getValue().size;
+            }
+
+            final Map<String, Phrase> requestedPhrases = new LinkedHashMap<>( phrases );
+
+            phrases.clear();
+
+            for ( final Map.Entry<String, Phrase> entry : loadedPhrases ) {
+                phrases.put( entry.getKey(), entry.getValue() );
+            }
+
+            for ( final Map.Entry<String, Phrase> entry : requestedPhrases.entrySet() ) {
+                final Phrase savedPhrase = phrases.get( entry.getKey() );
+                if ( savedPhrase != null ) {
+                    savedPhrase.requests += entry.getValue().requests;
+                }
+                else {
+                    phrases.put( entry.getKey(), entry.getValue() );
+                }
+            }
+
+            isIndexLoaded = true;
+
+            evictedFiles = evictFromDisk();
+        }
+
+        deleteFiles( evictedFiles );
+    }
+
+    /**
+     * Moves the synthesized clip from its temporary file to the cache. This method is called on the I/O thread.
+     */
+    private void storeClip( final String key, final boolean isSuccessful )
+    {
+        final File tempFile = getTempFile( key );
+
+        Clip clip = null;
+
+        try {
+            if ( isSuccessful ) {
+                final File clipFile = getClipFile( key );
+                Files.move( tempFile.toPath(), clipFile.toPath(), StandardCopyOption.REPLACE_EXISTING );
+
+                clip = new Clip( clipFile, clipFile.length(), readWavDuration( clipFile ) );
+            }
+            else {
+                // The synthesis may be interrupted by a new message, it will be restarted later
+                Files.deleteIfExists( tempFile.toPath() );
+            }
+        }
+        catch ( final IOException ex ) {
+            Log.e( "fheroes2", "Failed to cache the synthesized message.", ex );
+        }
+
+        final List<File> evictedFiles;
+
+        synchronized ( this ) {
+            storingKeys.remove( key );
+
+            if ( clip == null ) {
+                if ( isSuccessful ) {
+                    // Do not try to synthesize this phrase again during this session
+                    phrases.remove( key );
+                }
+
+                return;
+            }
+
+            clips.put( key, clip );
+            diskUsage += clip.size;
+
+            loadClip( clip );
+
+            evictedFiles = evictFromDisk();
+        }
+
+        deleteFiles( evictedFiles );
+    }
+
+    /**
+     * Requests SoundPool to load the clip into memory, unless it is already requested. SoundPool opens the file right away, so this is done on
+     * the I/O thread.
+     */
+    private void loadClip( final Clip clip )
+    {
+        if ( clip.isLoadRequested ) {
+            return;
+        }
+
+        clip.isLoadRequested = true;
+        ++pendingClipLoads;
+
+        ioExecutor.execute( () -> {
+            final int soundId = soundPool.load( clip.file.getAbsolutePath(), 1 );
+
+            synchronized ( this ) {
+                onClipLoadStarted( clip, soundId );
+            }
+        } );
+    }
+
+    private void onClipLoadStarted( final Clip clip, final int soundId )
+    {
+        --pendingClipLoads;
+
+        final Integer earlyStatus = earlyLoadStatuses.remove( soundId );
+        if ( pendingClipLoads == 0 ) {
+            earlyLoadStatuses.clear();
+        }
+
+        if ( soundId == 0 ) {
+            clip.isLoadRequested = false;
+            return;
+        }
+
+        // The clip may have been evicted while its file was being opened
+        if ( !clip.isLoadRequested ) {
+            soundPool.unload( soundId );
+            return;
+        }
+
+        clip.soundId = soundId;
+        clipsBySoundId.put( soundId, clip );
+        memoryUsage += clip.size;
+
+        if ( earlyStatus != null ) {
+            applyLoadStatus( clip, earlyStatus );
+        }
+
+        // Least recently used clips are unloaded from memory, but are kept on disk
+        final Iterator<Clip> iter = clips.values().iterator();
+
+        while ( memoryUsage > MEMORY_BUDGET_BYTES && iter.hasNext() ) {
+            final Clip other = iter.next();
+            if ( other != clip ) {
+                unloadClip( other );
+            }
+        }
+    }
+
+    private void unloadClip( final Clip clip )
+    {
+        clip.isLoadRequested = false;
+
+        if ( clip.soundId == 0 ) {
+            return;
+        }
+
+        soundPool.unload( clip.soundId );
+        clipsBySoundId.remove( clip.soundId );
+        memoryUsage -= clip.size;
+
+        clip.soundId = 0;
+        clip.isLoaded = false;
+    }
+
+    /**
+     * Removes the least recently used clips from the index until the disk budget is met.
+     *
+     * @return files of the removed clips, they should be deleted outside of the monitor of this cache
+     */
+    private List<File> evictFromDisk()
+    {
+        if ( diskUsage <= DISK_BUDGET_BYTES ) {
+            return Collections.emptyList();
+        }
+
+        final List<File> evictedFiles = new ArrayList<>();
+        final Iterator<Clip> iter = clips.values().iterator();
+
+        while ( diskUsage > DISK_BUDGET_BYTES && iter.hasNext() ) {
+            final Clip clip = iter.next();
+
+            unloadClip( clip );
+
+            evictedFiles.add( clip.file );
+
+            diskUsage -= clip.size;
+            iter.remove();
+        }
+
+        return evictedFiles;
+    }
+
+    private static void deleteFiles( final List<File> files )
+    {
+        for ( final File file : files ) {
+            if ( !file.delete() ) {
+                Log.w( "fheroes2", "Failed to delete the cached clip." );
+            }
+        }
+    }
+
+    private synchronized void onClipLoaded( final int soundId, final int status )
+    {
+        final Clip clip = clipsBySoundId.get( soundId );
+        if ( clip != null ) {
+            applyLoadStatus( clip, status );
+        }
+        else if ( pendingClipLoads > 0 ) {
+            // SoundPool may report the load before its sound ID is returned to the I/O thread
+            earlyLoadStatuses.put( soundId, status );
+        }
+    }
+
+    private void applyLoadStatus( final Clip clip, final int status )
+    {
+        if ( status == 0 ) {
+            clip.isLoaded = true;
+        }
+        else {
+            unloadClip( clip );
+        }
+    }
+
+    private String getKey( final String text, final float pitch, final float rate )
+    {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance( "SHA-1" );
+            final String id = String.format( Locale.ROOT, "%s\n%.2f\n%.2f\n%s", voiceTag, pitch, rate, text );
+            final byte[] hash = digest.digest( id.getBytes( StandardCharsets.UTF_8 ) );
+
+            final StringBuilder result = new StringBuilder();
+            for ( final byte b : hash ) {
+                result.append( String.format( Locale.ROOT, "%02x", b ) );
+            }
+
+            return result.toString();
+        }
+        catch ( final NoSuchAlgorithmException ex ) {
+            // SHA-1 is always available on Android
+            throw new IllegalStateException( ex );
+        }
+    }
+
+    private File getClipFile( final String key )
+    {
+        return new File( cacheDir, key + CLIP_FILE_EXTENSION );
+    }
+
+    private File getTempFile( final String key )
+    {
+        return new File( cacheDir, key + TEMP_FILE_EXTENSION );
+    }
+
+    /**
+     * @return duration of the WAV file in milliseconds
+     */
+    private static long readWavDuration( final File file ) throws IOException
+    {
+        // The header of the files produced by TTS engines is small, all the chunks that precede the "data" one should fit into this buffer
+        final byte[] header = new byte[4096];
+        int headerSize = 0;
+
+        try ( final InputStream in = Files.newInputStream( file.toPath() ) ) {
+            for ( int read; headerSize < header.length && ( read = in.read( header, headerSize, header.length - headerSize ) ) > 0; ) {
+                headerSize += read;
+            }
+        }
+
+        final ByteBuffer buffer = ByteBuffer.wrap( header, 0, headerSize ).order( ByteOrder.LITTLE_ENDIAN );
+
+        if ( headerSize < 12 || buffer.getInt( 0 ) != 0x46464952 /* "RIFF" */ || buffer.getInt( 8 ) != 0x45564157 /* "WAVE" */ ) {
+            throw new IOException( "Not a WAV file" );
+        }
+
+        long byteRate = 0;
+
+        for ( int pos = 12; pos + 8 <= headerSize; ) {
+            final int chunkId = buffer.getInt( pos );
+            final long chunkSize = buffer.getInt( pos + 4 ) & 0xFFFFFFFFL;
+
+            // "fmt "
+            if ( chunkId == 0x20746d66 && pos + 20 <= headerSize ) {
+                byteRate = buffer.getInt( pos + 16 ) & 0xFFFFFFFFL;
+            }
+            // "data"
+            else if ( chunkId == 0x61746164 ) {
+                if ( byteRate == 0 ) {
+                    break;
+                }
+
+                // The size of the data chunk may be unknown if the file was written as a stream
+                final long dataSize = Math.min( chunkSize, file.length() - pos - 8 );
+
+                return dataSize * 1000 / byteRate;
+            }
+
+            if ( chunkSize > headerSize ) {
+                break;
+            }
+
+            pos += 8 + (int)( chunkSize + ( chunkSize & 1 ) );
+        }
+
+        throw new IOException( "Invalid WAV file" );
+    }
+}
@@ -0,0 +1,167 @@
+/***************************************************************************
+ *   fheroes2: https://github.com/ihhub/fheroes2                           *
+ *   Copyright (C) 2025                                                    *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   This program is distributed in the hope that it will be useful,       *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with this program; if not, write to the                         *
+ *   Free Software Foundation, Inc.,                                       *
+ *   59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.             *
+ ***************************************************************************/
+
+package org.fheroes2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+import org.junit.Test;
+
+public final class AggFileVerifyingOutputStreamTest
+{
+    // Hashes of these names are calculated by fheroes2::calculateAggFilenameHash()
+    private static final String FIRST_NAME = "HELLO.TXT";
+    private static final int FIRST_NAME_HASH = 0xD5D79CE9;
+    private static final String SECOND_NAME = "WORLD.BIN";
+    private static final int SECOND_NAME_HASH = 0x43EDD90B;
+
+    private static final byte[] FIRST_DATA = "hello".getBytes( StandardCharsets.US_ASCII );
+    private static final byte[] SECOND_DATA = "world!".getBytes( StandardCharsets.US_ASCII );
+
+    private static final int MAX_FILENAME_SIZE = 15;
+    private static final int FILE_RECORD_SIZE = 12;
+
+    @Test
+    public void validFileIsAcceptedWhateverTheWriteSizes() throws IOException, NoSuchAlgorithmException
+    {
+        final byte[] agg = buildAgg( FIRST_NAME_HASH, SECOND_DATA.length );
+
+        for ( final int writeSize : new int[] { 1, 2, 3, 7, 16, agg.length } ) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            try ( final AggFileVerifyingOutputStream stream = new AggFileVerifyingOutputStream( out ) ) {
+                for ( int pos = 0; pos < agg.length; pos += writeSize ) {
+                    stream.write( agg, pos, Math.min( writeSize, agg.length - pos ) );
+                }
+
+                stream.verify();
+
+                assertEquals( toHex( MessageDigest.getInstance( "SHA-256" ).digest( agg ) ), stream.getSha256() );
+            }
+
+            assertArrayEquals( agg, out.toByteArray() );
+        }
+    }
+
+    @Test
+    public void singleByteWritesAreAccepted() throws IOException
+    {
+        final byte[] agg = buildAgg( FIRST_NAME_HASH, SECOND_DATA.length );
+
+        try ( final AggFileVerifyingOutputStream stream = new AggFileVerifyingOutputStream( new ByteArrayOutputStream() ) ) {
+            for ( final byte b : agg ) {
+                stream.write( b );
+            }
+
+            stream.verify();
+        }
+    }
+
+    @Test
+    public void wrongNameHashIsRejected() throws IOException
+    {
+        assertVerificationFails( buildAgg( FIRST_NAME_HASH + 1, SECOND_DATA.length ) );
+    }
+
+    @Test
+    public void fileBeyondEndIsRejected() throws IOException
+    {
+        assertVerificationFails( buildAgg( FIRST_NAME_HASH, 1000 ) );
+    }
+
+    @Test
+    public void fileWithoutFilesIsRejected() throws IOException
+    {
+        assertVerificationFails( new byte[] { 0, 0, 1, 2, 3 } );
+        assertVerificationFails( new byte[] { 1 } );
+    }
+
+    @Test
+    public void truncatedFileIsRejected() throws IOException
+    {
+        final byte[] agg = buildAgg( FIRST_NAME_HASH, SECOND_DATA.length );
+
+        final byte[] truncated = new byte[2 + FILE_RECORD_SIZE * 2];
+        System.arraycopy( agg, 0, truncated, 0, truncated.length );
+
+        assertVerificationFails( truncated );
+    }
+
+    private static void assertVerificationFails( final byte[] agg ) throws IOException
+    {
+        try ( final AggFileVerifyingOutputStream stream = new AggFileVerifyingOutputStream( new ByteArrayOutputStream() ) ) {
+            stream.write( agg, 0, agg.length );
+
+            assertThrows( IOException.class, stream::verify );
+        }
+    }
+
+    /**
+     * @return AGG file with two files: the number of files, the file records, the file data and the file names at the very end
+     */
+    private static byte[] buildAgg( final int firstNameHash, final int secondSize )
+    {
+        final int dataOffset = 2 + FILE_RECORD_SIZE * 2;
+        final int size = dataOffset + FIRST_DATA.length + SECOND_DATA.length + MAX_FILENAME_SIZE * 2;
+
+        final ByteBuffer buf = ByteBuffer.allocate( size ).order( ByteOrder.LITTLE_ENDIAN );
+
+        buf.putShort( (short)2 );
+
+        buf.putInt( firstNameHash );
+        buf.putInt( dataOffset );
+        buf.putInt( FIRST_DATA.length );
+
+        buf.putInt( SECOND_NAME_HASH );
+        buf.putInt( dataOffset + FIRST_DATA.length );
+        buf.putInt( secondSize );
+
+        buf.put( FIRST_DATA );
+        buf.put( SECOND_DATA );
+
+        buf.put( FIRST_NAME.getBytes( StandardCharsets.US_ASCII ) );
+        buf.position( buf.position() + MAX_FILENAME_SIZE - FIRST_NAME.length() );
+        buf.put( SECOND_NAME.getBytes( StandardCharsets.US_ASCII ) );
+
+        return buf.array();
+    }
+
+    private static String toHex( final byte[] data )
+    {
+        final StringBuilder sb = new StringBuilder();
+
+        for ( final byte b : data ) {
+            sb.append( String.format( Locale.ROOT, "%02x", b ) );
+        }
+
+        return sb.toString();
+    }
+}
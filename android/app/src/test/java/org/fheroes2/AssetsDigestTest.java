@@ -0,0 +1,111 @@
+/***************************************************************************
+ *   fheroes2: https://github.com/ihhub/fheroes2                           *
+ *   Copyright (C) 2025                                                    *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   This program is distributed in the hope that it will be useful,       *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with this program; if not, write to the                         *
+ *   Free Software Foundation, Inc.,                                       *
+ *   59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.             *
+ ***************************************************************************/
+
+package org.fheroes2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public final class AssetsDigestTest
+{
+    @Test
+    public void pathsAreKeptInDigestOrder() throws IOException
+    {
+        final AssetsDigest digest = parse( line( 'a', 10, "maps/b.fh2m" ), line( 'b', 20, "files/lang/ru.mo" ), line( 'c', 30, "maps/a.fh2m" ) );
+
+        assertEquals( Arrays.asList( "maps/b.fh2m", "files/lang/ru.mo", "maps/a.fh2m" ), Arrays.asList( digest.getPaths().toArray() ) );
+    }
+
+    @Test
+    public void windowsPathSeparatorsAreNormalized() throws IOException
+    {
+        final AssetsDigest digest = parse( line( 'a', 10, "files\\data\\resurrection.h2d" ) );
+
+        assertEquals( Arrays.asList( "files/data/resurrection.h2d" ), Arrays.asList( digest.getPaths().toArray() ) );
+    }
+
+    @Test
+    public void changedPathsIncludeNewAndModifiedAssets() throws IOException
+    {
+        final AssetsDigest previous = parse( line( 'a', 10, "unchanged.mo" ), line( 'b', 20, "new_hash.mo" ), line( 'c', 30, "new_size.mo" ),
+                                             line( 'd', 40, "removed.mo" ) );
+        final AssetsDigest current = parse( line( 'a', 10, "unchanged.mo" ), line( 'e', 20, "new_hash.mo" ), line( 'c', 31, "new_size.mo" ),
+                                            line( 'f', 50, "added.mo" ) );
+
+        assertEquals( Arrays.asList( "new_hash.mo", "new_size.mo", "added.mo" ), current.getChangedPaths( previous ) );
+        assertEquals( Arrays.asList( "removed.mo" ), current.getRemovedPaths( previous ) );
+    }
+
+    @Test
+    public void sameDigestHasNoChanges() throws IOException
+    {
+        final AssetsDigest previous = parse( line( 'a', 10, "maps/a.fh2m" ), line( 'b', 20, "maps/b.fh2m" ) );
+        final AssetsDigest current = parse( line( 'a', 10, "maps/a.fh2m" ), line( 'b', 20, "maps/b.fh2m" ) );
+
+        assertTrue( current.getChangedPaths( previous ).isEmpty() );
+        assertTrue( current.getRemovedPaths( previous ).isEmpty() );
+    }
+
+    @Test
+    public void emptyPreviousDigestMeansAllAssetsChanged() throws IOException
+    {
+        final AssetsDigest previous = parse();
+        final AssetsDigest current = parse( line( 'a', 10, "maps/a.fh2m" ), line( 'b', 20, "maps/b.fh2m" ) );
+
+        assertEquals( Arrays.asList( "maps/a.fh2m", "maps/b.fh2m" ), current.getChangedPaths( previous ) );
+        assertTrue( current.getRemovedPaths( previous ).isEmpty() );
+    }
+
+    @Test
+    public void invalidLineIsRejected()
+    {
+        assertThrows( IOException.class, () -> parse( "0123 10 maps/a.fh2m" ) );
+        assertThrows( IOException.class, () -> parse( line( 'a', 10, "" ) ) );
+    }
+
+    private static AssetsDigest parse( final String... lines ) throws IOException
+    {
+        final StringBuilder sb = new StringBuilder();
+
+        for ( final String line : lines ) {
+            sb.append( line ).append( '\n' );
+        }
+
+        return AssetsDigest.parse( sb.toString().getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    /**
+     * @return line of the digest in the same format as the one generated by the generateAssetsDigest Gradle task
+     */
+    private static String line( final char hashDigit, final long size, final String path )
+    {
+        final char[] hash = new char[128];
+        Arrays.fill( hash, hashDigit );
+
+        return String.format( "%s % 12d %s", new String( hash ), size, path );
+    }
+}
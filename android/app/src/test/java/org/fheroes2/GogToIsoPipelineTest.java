@@ -0,0 +1,141 @@
+/***************************************************************************
+ *   fheroes2: https://github.com/ihhub/fheroes2                           *
+ *   Copyright (C) 2025                                                    *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   This program is distributed in the hope that it will be useful,       *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with this program; if not, write to the                         *
+ *   Free Software Foundation, Inc.,                                       *
+ *   59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.             *
+ ***************************************************************************/
+
+package org.fheroes2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+public final class GogToIsoPipelineTest
+{
+    private static final int GOG_SECTOR_SIZE = 2352;
+    private static final int ISO_SECTOR_SIZE = 2048;
+
+    // Should be kept in sync with GogToIsoPipeline.SECTORS_PER_CHUNK
+    private static final int SECTORS_PER_CHUNK = 64;
+
+    @Test
+    public void sectorsAreConvertedInOrder() throws IOException
+    {
+        // Several times more chunks than there are in the pools, and the last chunk is partially filled
+        final int sectorsCount = SECTORS_PER_CHUNK * 10 + 5;
+
+        final ByteArrayOutputStream iso = new ByteArrayOutputStream();
+
+        GogToIsoPipeline.convert( new ByteArrayInputStream( buildGog( sectorsCount ) ), iso );
+
+        assertArrayEquals( buildIso( sectorsCount ), iso.toByteArray() );
+    }
+
+    @Test
+    public void incompleteLastSectorIsIgnored() throws IOException
+    {
+        final int sectorsCount = SECTORS_PER_CHUNK + 1;
+
+        final byte[] gog = buildGog( sectorsCount );
+        final byte[] truncatedGog = new byte[gog.length - 100];
+        System.arraycopy( gog, 0, truncatedGog, 0, truncatedGog.length );
+
+        final ByteArrayOutputStream iso = new ByteArrayOutputStream();
+
+        GogToIsoPipeline.convert( new ByteArrayInputStream( truncatedGog ), iso );
+
+        assertArrayEquals( buildIso( sectorsCount - 1 ), iso.toByteArray() );
+    }
+
+    @Test
+    public void emptyStreamProducesEmptyIso() throws IOException
+    {
+        final ByteArrayOutputStream iso = new ByteArrayOutputStream();
+
+        GogToIsoPipeline.convert( new ByteArrayInputStream( new byte[0] ), iso );
+
+        assertEquals( 0, iso.size() );
+    }
+
+    @Test
+    public void readErrorIsPropagated()
+    {
+        final InputStream failingStream = new FilterInputStream( new ByteArrayInputStream( buildGog( SECTORS_PER_CHUNK * 8 ) ) ) {
+            private int readCount = 0;
+
+            @Override
+            public int read( final byte[] b, final int off, final int len ) throws IOException
+            {
+                if ( ++readCount > 3 ) {
+                    throw new IOException( "Read error" );
+                }
+
+                return super.read( b, off, len );
+            }
+        };
+
+        assertThrows( IOException.class, () -> GogToIsoPipeline.convert( failingStream, new ByteArrayOutputStream() ) );
+    }
+
+    /**
+     * @return GOG file with sectors of modes 1 and 2 in turns, which have 16- and 24-byte headers respectively
+     */
+    private static byte[] buildGog( final int sectorsCount )
+    {
+        final byte[] gog = new byte[sectorsCount * GOG_SECTOR_SIZE];
+
+        for ( int sector = 0; sector < sectorsCount; ++sector ) {
+            final int sectorOffset = sector * GOG_SECTOR_SIZE;
+            final boolean isMode2 = sector % 2 == 1;
+
+            gog[sectorOffset + 15] = (byte)( isMode2 ? 2 : 1 );
+
+            final int headerSize = isMode2 ? 24 : 16;
+            for ( int i = 0; i < ISO_SECTOR_SIZE; ++i ) {
+                gog[sectorOffset + headerSize + i] = getIsoByte( sector, i );
+            }
+        }
+
+        return gog;
+    }
+
+    private static byte[] buildIso( final int sectorsCount )
+    {
+        final byte[] iso = new byte[sectorsCount * ISO_SECTOR_SIZE];
+
+        for ( int sector = 0; sector < sectorsCount; ++sector ) {
+            for ( int i = 0; i < ISO_SECTOR_SIZE; ++i ) {
+                iso[sector * ISO_SECTOR_SIZE + i] = getIsoByte( sector, i );
+            }
+        }
+
+        return iso;
+    }
+
+    private static byte getIsoByte( final int sector, final int pos )
+    {
+        return (byte)( sector * 31 + pos );
+    }
+}
@@ -0,0 +1,144 @@
+/***************************************************************************
+ *   fheroes2: https://github.com/ihhub/fheroes2                           *
+ *   Copyright (C) 2025                                                    *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   This program is distributed in the hope that it will be useful,       *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with this program; if not, write to the                         *
+ *   Free Software Foundation, Inc.,                                       *
+ *   59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.             *
+ ***************************************************************************/
+
+package org.fheroes2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public final class SpeechDispatcherTest
+{
+    // Should be kept in sync with SpeechDispatcher.CAPACITY
+    private static final int CAPACITY = 64;
+
+    private static final long TIMEOUT_S = 10;
+
+    private static final class RecordingHandler implements SpeechDispatcher.MessageHandler
+    {
+        private final List<String> texts = new ArrayList<>();
+        private final List<Integer> attributes = new ArrayList<>();
+
+        // The first message is not handled until this latch is released, so the ring can be filled up
+        private final CountDownLatch firstMessageEntered = new CountDownLatch( 1 );
+        private final CountDownLatch firstMessageReleased = new CountDownLatch( 1 );
+
+        private volatile CountDownLatch messagesHandled;
+
+        private RecordingHandler( final int expectedMessages )
+        {
+            messagesHandled = new CountDownLatch( expectedMessages );
+        }
+
+        @Override
+        public void handleMessage( final String text, final int attributes, final long emitTime, final long postTime )
+        {
+            firstMessageEntered.countDown();
+
+            try {
+                firstMessageReleased.await();
+            }
+            catch ( final InterruptedException ex ) {
+                Thread.currentThread().interrupt();
+            }
+
+            synchronized ( this ) {
+                texts.add( text );
+                this.attributes.add( attributes );
+            }
+
+            messagesHandled.countDown();
+        }
+
+        @Override
+        public void onMessagesHandled()
+        {
+        }
+    }
+
+    @Test
+    public void messagesAreHandledInOrderAcrossRingWraparound() throws InterruptedException
+    {
+        final int messagesCount = CAPACITY * 5 + 3;
+
+        final RecordingHandler handler = new RecordingHandler( messagesCount );
+        handler.firstMessageReleased.countDown();
+
+        final SpeechDispatcher dispatcher = new SpeechDispatcher( handler );
+
+        for ( int i = 0; i < messagesCount; ++i ) {
+            // The ring may be full if the dispatcher thread falls behind
+            while ( !dispatcher.post( "Message " + i, i, 0 ) ) {
+                Thread.yield();
+            }
+        }
+
+        assertTrue( handler.messagesHandled.await( TIMEOUT_S, TimeUnit.SECONDS ) );
+
+        synchronized ( handler ) {
+            assertEquals( messagesCount, handler.texts.size() );
+
+            for ( int i = 0; i < messagesCount; ++i ) {
+                assertEquals( "Message " + i, handler.texts.get( i ) );
+                assertEquals( i, (int)handler.attributes.get( i ) );
+            }
+        }
+    }
+
+    @Test
+    public void messageIsDroppedWhenRingIsFull() throws InterruptedException
+    {
+        final RecordingHandler handler = new RecordingHandler( CAPACITY + 1 );
+        final SpeechDispatcher dispatcher = new SpeechDispatcher( handler );
+
+        assertTrue( dispatcher.post( "Blocked", 0, 0 ) );
+        assertTrue( handler.firstMessageEntered.await( TIMEOUT_S, TimeUnit.SECONDS ) );
+
+        // The slot of the message being handled is already released
+        for ( int i = 0; i < CAPACITY; ++i ) {
+            assertTrue( dispatcher.post( "Message " + i, 0, 0 ) );
+        }
+
+        assertFalse( dispatcher.post( "Dropped", 0, 0 ) );
+
+        handler.firstMessageReleased.countDown();
+
+        assertTrue( handler.messagesHandled.await( TIMEOUT_S, TimeUnit.SECONDS ) );
+
+        synchronized ( handler ) {
+            assertEquals( "Blocked", handler.texts.get( 0 ) );
+            assertEquals( "Message " + ( CAPACITY - 1 ), handler.texts.get( CAPACITY ) );
+            assertFalse( handler.texts.contains( "Dropped" ) );
+        }
+
+        // Once the ring is drained, it accepts messages again
+        handler.messagesHandled = new CountDownLatch( 1 );
+
+        assertTrue( dispatcher.post( "Accepted", 0, 0 ) );
+        assertTrue( handler.messagesHandled.await( TIMEOUT_S, TimeUnit.SECONDS ) );
+    }
+}
@@ -0,0 +1,128 @@
+/***************************************************************************
+ *   fheroes2: https://github.com/ihhub/fheroes2                           *
+ *   Copyright (C) 2025                                                    *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   This program is distributed in the hope that it will be useful,       *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with this program; if not, write to the                         *
+ *   Free Software Foundation, Inc.,                                       *
+ *   59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.             *
+ ***************************************************************************/
+
+package org.fheroes2;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import android.content.res.Resources;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public final class SpeechNormalizerTest
+{
+    private static final String DICTIONARY = "# Comments and malformed lines are skipped\n"
+                                             + "\n"
+                                             + "no tab here\n"
+                                             + "1K\tone thousand\n"
+                                             + "\\d1K\t1 thousand\n"
+                                             + "\\dK\tthousands\n"
+                                             + "Att.\tAttack\n"
+                                             + " - \t, \n"
+                                             + "<<\tleft\n"
+                                             + "<<<\tfar left\n"
+                                             + "<-\tback\n"
+                                             + "&\tand\n";
+
+    private SpeechNormalizer normalizer;
+
+    @Before
+    public void setUp()
+    {
+        // With the default return values of the Android framework stubs, only the overridden method does something
+        final Resources resources = new Resources( null, null, null ) {
+            @Override
+            public InputStream openRawResource( final int id )
+            {
+                return new ByteArrayInputStream( DICTIONARY.getBytes( StandardCharsets.UTF_8 ) );
+            }
+        };
+
+        normalizer = new SpeechNormalizer( resources, 0 );
+    }
+
+    @Test
+    public void textWithoutMatchesIsNotChanged()
+    {
+        assertEquals( "Gold: 1500", normalizer.normalize( "Gold: 1500" ) );
+        assertEquals( "", normalizer.normalize( "" ) );
+    }
+
+    @Test
+    public void patternsMatchOnlyWholeWords()
+    {
+        assertEquals( "Attack 5, Defense 3", normalizer.normalize( "Att. 5, Defense 3" ) );
+        assertEquals( "Watt. 5", normalizer.normalize( "Watt. 5" ) );
+        assertEquals( "one thousand gold", normalizer.normalize( "1K gold" ) );
+        assertEquals( "1Km", normalizer.normalize( "1Km" ) );
+        // Patterns that start and end with punctuation match anywhere
+        assertEquals( "Swords and Shields", normalizer.normalize( "Swords & Shields" ) );
+        assertEquals( "Swordsand Shields", normalizer.normalize( "Swords& Shields" ) );
+    }
+
+    @Test
+    public void afterDigitPatternsMatchOnlyAfterDigits()
+    {
+        // The replacement is separated from the number by a space
+        assertEquals( "5 thousands gold", normalizer.normalize( "5K gold" ) );
+        assertEquals( "K gold", normalizer.normalize( "K gold" ) );
+        assertEquals( "OK", normalizer.normalize( "OK" ) );
+    }
+
+    @Test
+    public void afterDigitPatternStartingWithDigitContinuesNumber()
+    {
+        assertEquals( "21 thousand", normalizer.normalize( "21K" ) );
+        assertEquals( "-21 thousand gold", normalizer.normalize( "-21K gold" ) );
+        // The same pattern without the "\d" prefix is applied when there is no digit before it
+        assertEquals( "one thousand", normalizer.normalize( "1K" ) );
+        assertEquals( "25 thousands", normalizer.normalize( "25K" ) );
+    }
+
+    @Test
+    public void longestMatchWinsAndEarlierMatchTakesPrecedence()
+    {
+        assertEquals( "x far left y", normalizer.normalize( "x <<< y" ) );
+        assertEquals( "x left y", normalizer.normalize( "x << y" ) );
+        // "<-" overlaps with the earlier match of "<<<", so it is not applied
+        assertEquals( "x far left- y", normalizer.normalize( "x <<<- y" ) );
+        // The match of "<-" is found by following the failure links from the node of "<<<"
+        assertEquals( "x far leftback y", normalizer.normalize( "x <<<<- y" ) );
+    }
+
+    @Test
+    public void spacesArePartOfPatterns()
+    {
+        assertEquals( "Gold, 5", normalizer.normalize( "Gold - 5" ) );
+        assertEquals( "Gold-5", normalizer.normalize( "Gold-5" ) );
+    }
+
+    @Test
+    public void memoizedResultIsTheSame()
+    {
+        assertEquals( "5 thousands gold", normalizer.normalize( "5K gold" ) );
+        assertEquals( "5 thousands gold", normalizer.normalize( "5K gold" ) );
+    }
+}
@@ -0,0 +1,97 @@
+/***************************************************************************
+ *   fheroes2: https://github.com/ihhub/fheroes2                           *
+ *   Copyright (C) 2025                                                    *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   This program is distributed in the hope that it will be useful,       *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with this program; if not, write to the                         *
+ *   Free Software Foundation, Inc.,                                       *
+ *   59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.             *
+ ***************************************************************************/
+
+package org.fheroes2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public final class SpeechRateControllerTest
+{
+    private static final float DELTA = 1e-4f;
+
+    private static final long SECOND_NS = 1_000_000_000L;
+
+    private SpeechRateController controller;
+
+    @Before
+    public void setUp()
+    {
+        controller = new SpeechRateController();
+    }
+
+    @Test
+    public void rateGrowsFromPreferredToMaxWithBacklog()
+    {
+        controller.setRates( 1.0f, 2.0f );
+
+        assertEquals( 1.0f, controller.getRate( 0, SECOND_NS ), DELTA );
+        assertEquals( 1.5f, controller.getRate( 150, SECOND_NS ), DELTA );
+        assertEquals( 2.0f, controller.getRate( 300, SECOND_NS ), DELTA );
+        assertEquals( 2.0f, controller.getRate( 100000, SECOND_NS ), DELTA );
+    }
+
+    @Test
+    public void rateIsRoundedToStep()
+    {
+        controller.setRates( 1.0f, 2.0f );
+
+        // 1.0 + 1.0 * 10 / 300 is rounded down to 1.0, while 1.0 + 1.0 * 20 / 300 is rounded up to 1.1
+        assertEquals( 1.0f, controller.getRate( 10, SECOND_NS ), DELTA );
+        assertEquals( 1.1f, controller.getRate( 20, SECOND_NS ), DELTA );
+    }
+
+    @Test
+    public void ratesAreClampedToSupportedRange()
+    {
+        controller.setRates( 0.1f, 10.0f );
+
+        assertEquals( 0.5f, controller.getPreferredRate(), DELTA );
+        assertEquals( 0.5f, controller.getRate( 0, SECOND_NS ), DELTA );
+        assertEquals( 4.0f, controller.getRate( 100000, SECOND_NS ), DELTA );
+    }
+
+    @Test
+    public void maxRateBelowPreferredDisablesAdaptiveRate()
+    {
+        controller.setRates( 1.5f, 1.0f );
+
+        assertEquals( 1.5f, controller.getRate( 0, SECOND_NS ), DELTA );
+        assertEquals( 1.5f, controller.getRate( 100000, SECOND_NS ), DELTA );
+    }
+
+    @Test
+    public void burstOfMessagesIncreasesRateUntilItDecays()
+    {
+        controller.setRates( 1.0f, 2.0f );
+
+        long time = SECOND_NS;
+        for ( int i = 0; i < 20; ++i ) {
+            controller.onMessageArrived( time );
+            time += SECOND_NS / 20;
+        }
+
+        assertTrue( controller.getRate( 0, time ) > 1.5f );
+        assertEquals( 1.0f, controller.getRate( 0, time + 60 * SECOND_NS ), DELTA );
+    }
+}
@@ -0,0 +1,226 @@
+/***************************************************************************
+ *   fheroes2: https://github.com/ihhub/fheroes2                           *
+ *   Copyright (C) 2025                                                    *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   This program is distributed in the hope that it will be useful,       *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with this program; if not, write to the                         *
+ *   Free Software Foundation, Inc.,                                       *
+ *   59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.             *
+ ***************************************************************************/
+
+package org.fheroes2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public final class SpeechSchedulerTest
+{
+    private static final class RecordingSpeaker implements SpeechScheduler.Speaker
+    {
+        private final List<String> spokenTexts = new ArrayList<>();
+        private final List<String> utteranceIds = new ArrayList<>();
+
+        private boolean isReady = true;
+        private int idleCount = 0;
+
+        @Override
+        public int speak( final String text, final float pitch, final float rate, final String utteranceId )
+        {
+            spokenTexts.add( text );
+            utteranceIds.add( utteranceId );
+
+            return RESULT_SYNTHESIZED;
+        }
+
+        @Override
+        public void onIdle()
+        {
+            ++idleCount;
+        }
+
+        @Override
+        public boolean isReady()
+        {
+            return isReady;
+        }
+
+        @Override
+        public void prefetch( final String text, final float pitch, final float rate )
+        {
+        }
+
+        private String getLastUtteranceId()
+        {
+            return utteranceIds.get( utteranceIds.size() - 1 );
+        }
+    }
+
+    private RecordingSpeaker speaker;
+    private SpeechScheduler scheduler;
+
+    @Before
+    public void setUp()
+    {
+        speaker = new RecordingSpeaker();
+        scheduler = new SpeechScheduler( speaker, new SpeechMetrics(), new SpeechRateController() );
+    }
+
+    @Test
+    public void higherPriorityMessageInterruptsCurrentUtterance()
+    {
+        post( SpeechScheduler.Channel.STATUS_BAR, "Grass", 0 );
+        post( SpeechScheduler.Channel.DANGER, "Enemy hero", 0 );
+
+        assertEquals( Arrays.asList( "Grass", "Enemy hero" ), speaker.spokenTexts );
+    }
+
+    @Test
+    public void lowerPriorityMessageWaitsForCurrentUtterance()
+    {
+        post( SpeechScheduler.Channel.DIALOG, "Do you want to end the turn?", 0 );
+        post( SpeechScheduler.Channel.STATUS_BAR, "Grass", 0 );
+
+        assertEquals( Arrays.asList( "Do you want to end the turn?" ), speaker.spokenTexts );
+
+        finishCurrentUtterance();
+
+        assertEquals( Arrays.asList( "Do you want to end the turn?", "Grass" ), speaker.spokenTexts );
+    }
+
+    @Test
+    public void newerMessageOfSameChannelInterruptsCurrentUtterance()
+    {
+        post( SpeechScheduler.Channel.STATUS_BAR, "Grass", 0 );
+        post( SpeechScheduler.Channel.STATUS_BAR, "Swamp", 0 );
+
+        assertEquals( Arrays.asList( "Grass", "Swamp" ), speaker.spokenTexts );
+    }
+
+    @Test
+    public void noInterruptFlagWaitsForCurrentUtterance()
+    {
+        post( SpeechScheduler.Channel.NAVIGATION, "New Game", 0 );
+        post( SpeechScheduler.Channel.NAVIGATION, "Load Game", SpeechScheduler.FLAG_NO_INTERRUPT );
+
+        assertEquals( Arrays.asList( "New Game" ), speaker.spokenTexts );
+
+        finishCurrentUtterance();
+
+        assertEquals( Arrays.asList( "New Game", "Load Game" ), speaker.spokenTexts );
+    }
+
+    @Test
+    public void onlyNewestPendingMessageOfChannelIsSpoken()
+    {
+        post( SpeechScheduler.Channel.DIALOG, "Do you want to end the turn?", 0 );
+        post( SpeechScheduler.Channel.STATUS_BAR, "Grass", 0 );
+        post( SpeechScheduler.Channel.STATUS_BAR, "Swamp", 0 );
+        post( SpeechScheduler.Channel.STATUS_BAR, "Desert", 0 );
+
+        finishCurrentUtterance();
+        finishCurrentUtterance();
+
+        assertEquals( Arrays.asList( "Do you want to end the turn?", "Desert" ), speaker.spokenTexts );
+    }
+
+    @Test
+    public void messageBeingSpokenIsNotRepeatedWithoutRepeatFlag()
+    {
+        post( SpeechScheduler.Channel.STATUS_BAR, "Grass", 0 );
+        post( SpeechScheduler.Channel.STATUS_BAR, "Grass", 0 );
+
+        assertEquals( Arrays.asList( "Grass" ), speaker.spokenTexts );
+
+        post( SpeechScheduler.Channel.STATUS_BAR, "Grass", SpeechScheduler.FLAG_REPEAT );
+
+        assertEquals( Arrays.asList( "Grass", "Grass" ), speaker.spokenTexts );
+    }
+
+    @Test
+    public void completionOfInterruptedUtteranceIsIgnored()
+    {
+        post( SpeechScheduler.Channel.STATUS_BAR, "Grass", 0 );
+
+        final String interruptedUtteranceId = speaker.getLastUtteranceId();
+
+        post( SpeechScheduler.Channel.DANGER, "Enemy hero", 0 );
+
+        assertFalse( scheduler.onUtteranceFinished( interruptedUtteranceId ) );
+        assertTrue( scheduler.onUtteranceFinished( speaker.getLastUtteranceId() ) );
+    }
+
+    @Test
+    public void interruptedLongMessageDropsRemainingSentences()
+    {
+        final String firstSentence = "The first sentence of this event is long enough to be spoken on its own.";
+        final String secondSentence = "The second sentence of this event is long enough to be spoken on its own too.";
+        final String thirdSentence = "The third sentence is never spoken, because the message is interrupted.";
+
+        post( SpeechScheduler.Channel.DIALOG, firstSentence + " " + secondSentence + " " + thirdSentence, 0 );
+
+        assertEquals( Arrays.asList( firstSentence ), speaker.spokenTexts );
+
+        finishCurrentUtterance();
+
+        assertEquals( Arrays.asList( firstSentence, secondSentence ), speaker.spokenTexts );
+
+        post( SpeechScheduler.Channel.DANGER, "Enemy hero", 0 );
+        finishCurrentUtterance();
+
+        assertEquals( Arrays.asList( firstSentence, secondSentence, "Enemy hero" ), speaker.spokenTexts );
+    }
+
+    @Test
+    public void bufferedMessagesAreSpokenOnceReadyInPriorityOrder()
+    {
+        speaker.isReady = false;
+
+        post( SpeechScheduler.Channel.STATUS_BAR, "Grass", 0 );
+        post( SpeechScheduler.Channel.DIALOG, "Welcome", 0 );
+        // Buffered messages of the transient channels are superseded by the newer ones
+        post( SpeechScheduler.Channel.STATUS_BAR, "Swamp", 0 );
+
+        assertTrue( speaker.spokenTexts.isEmpty() );
+
+        speaker.isReady = true;
+        scheduler.dispatch();
+
+        assertEquals( Arrays.asList( "Welcome" ), speaker.spokenTexts );
+
+        finishCurrentUtterance();
+        finishCurrentUtterance();
+
+        assertEquals( Arrays.asList( "Welcome", "Swamp" ), speaker.spokenTexts );
+        assertEquals( 1, speaker.idleCount );
+    }
+
+    private void post( final SpeechScheduler.Channel channel, final String text, final int flags )
+    {
+        scheduler.enqueue( text, SpeechScheduler.packAttributes( channel, flags ), 0, System.nanoTime() );
+        scheduler.dispatch();
+    }
+
+    private void finishCurrentUtterance()
+    {
+        scheduler.onUtteranceFinished( speaker.getLastUtteranceId() );
+        scheduler.dispatch();
+    }
+}
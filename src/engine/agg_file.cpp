@@ -1,6 +1,6 @@
 /***************************************************************************
  *   fheroes2: https://github.com/ihhub/fheroes2                           *
- *   Copyright (C) 2020 - 2024                                             *
+ *   Copyright (C) 2020 - 2025                                             *
  *                                                                         *
  *   This program is free software; you can redistribute it and/or modify  *
  *   it under the terms of the GNU General Public License as published by  *
@@ -20,25 +20,86 @@
 
 #include "agg_file.h"
 
+#include <algorithm>
 #include <cctype>
 #include <cstdint>
+#include <filesystem>
 #include <iterator>
+#include <memory>
+#include <mutex>
 #include <string>
+#include <system_error>
+#include <vector>
+
+namespace
+{
+    struct FileTableCacheEntry
+    {
+        std::string fileName;
+        std::uintmax_t fileSize{ 0 };
+        std::filesystem::file_time_type modificationTime;
+        std::shared_ptr<const fheroes2::AGGFile::FileTable> files;
+    };
+
+    // There are only a few AGG files, so the linear search is fine
+    std::mutex fileTableCacheMutex;
+    std::vector<FileTableCacheEntry> fileTableCache;
+}
 
 namespace fheroes2
 {
     bool AGGFile::open( const std::string & fileName )
     {
+        _files.reset();
+
         if ( !_stream.open( fileName, "rb" ) ) {
             return false;
         }
 
+        // If the size or the modification time of the file are unknown, the cached table of files cannot be trusted
+        std::error_code ec;
+        const std::uintmax_t aggFileSize = std::filesystem::file_size( fileName, ec );
+        const std::filesystem::file_time_type aggFileModificationTime = ec ? std::filesystem::file_time_type{} : std::filesystem::last_write_time( fileName, ec );
+        const bool isFileInfoValid = !ec;
+
+        const std::scoped_lock<std::mutex> lock( fileTableCacheMutex );
+
+        auto cacheIter = std::find_if( fileTableCache.begin(), fileTableCache.end(),
+                                       [&fileName]( const FileTableCacheEntry & entry ) { return entry.fileName == fileName; } );
+
+        if ( isFileInfoValid && cacheIter != fileTableCache.end() && cacheIter->fileSize == aggFileSize
+             && cacheIter->modificationTime == aggFileModificationTime ) {
+            _files = cacheIter->files;
+            return true;
+        }
+
+        _files = parseFileTable();
+        if ( !_files ) {
+            return false;
+        }
+
+        if ( !isFileInfoValid ) {
+            return true;
+        }
+
+        if ( cacheIter == fileTableCache.end() ) {
+            fileTableCache.push_back( { fileName, aggFileSize, aggFileModificationTime, _files } );
+        }
+        else {
+            *cacheIter = { fileName, aggFileSize, aggFileModificationTime, _files };
+        }
+
+        return true;
+    }
+
+    std::shared_ptr<const AGGFile::FileTable> AGGFile::parseFileTable()
+    {
         const size_t size = _stream.size();
         const size_t count = _stream.getLE16();
         const size_t fileRecordSize = sizeof( uint32_t ) * 3;
 
         if ( count * ( fileRecordSize + _maxFilenameSize ) >= size ) {
-            return false;
+            return {};
         }
 
         ROStreamBuf fileEntries = _stream.getStreamBuf( count * fileRecordSize );
@@ -46,33 +107,37 @@ namespace fheroes2
         _stream.seek( size - nameEntriesSize );
         ROStreamBuf nameEntries = _stream.getStreamBuf( nameEntriesSize );
 
+        auto files = std::make_shared<FileTable>();
+
         for ( size_t i = 0; i < count; ++i ) {
             std::string name = nameEntries.getString( _maxFilenameSize );
 
             // Check 32-bit filename hash.
             if ( fileEntries.getLE32() != calculateAggFilenameHash( name ) ) {
                 // Hash check failed. AGG file is corrupted.
-                _files.clear();
-                return false;
+                return {};
             }
 
             const uint32_t fileOffset = fileEntries.getLE32();
             const uint32_t fileSize = fileEntries.getLE32();
-            _files.try_emplace( std::move( name ), std::make_pair( fileSize, fileOffset ) );
+            files->try_emplace( std::move( name ), std::make_pair( fileSize, fileOffset ) );
         }
 
-        if ( _files.size() != count ) {
-            _files.clear();
-            return false;
+        if ( files->size() != count || _stream.fail() ) {
+            return {};
         }
 
-        return !_stream.fail();
+        return files;
     }
 
     std::vector<uint8_t> AGGFile::read( const std::string & fileName )
     {
-        auto it = _files.find( fileName );
-        if ( it == _files.end() ) {
+        if ( !_files ) {
+            return {};
+        }
+
+        auto it = _files->find( fileName );
+        if ( it == _files->end() ) {
             return {};
         }
 
@@ -24,6 +24,7 @@
 #include <cstdint>
 #include <functional>
 #include <map>
+#include <memory>
 #include <string>
 #include <string_view>
 #include <utility>
@@ -36,19 +37,26 @@ namespace fheroes2
     class AGGFile
     {
     public:
+        // File name mapped to the file size and the file offset
+        using FileTable = std::map<std::string, std::pair<uint32_t, uint32_t>, std::less<>>;
+
         bool isGood() const
         {
-            return !_stream.fail() && !_files.empty();
+            return !_stream.fail() && _files && !_files->empty();
         }
 
+        // The same AGG file is opened by several objects (e.g. to read images and to read music), so its table of files is parsed only once
+        // and is shared by these objects as long as the file is not modified.
         bool open( const std::string & fileName );
         std::vector<uint8_t> read( const std::string & fileName );
 
     private:
         static const size_t _maxFilenameSize = 15; // 8.3 ASCIIZ file name + 2-bytes padding
 
+        std::shared_ptr<const FileTable> parseFileTable();
+
         StreamFile _stream;
-        std::map<std::string, std::pair<uint32_t, uint32_t>, std::less<>> _files;
+        std::shared_ptr<const FileTable> _files;
     };
 
     struct ICNHeader
@@ -0,0 +1,379 @@
+/***************************************************************************
+ *   fheroes2: https://github.com/ihhub/fheroes2                           *
+ *   Copyright (C) 2025                                                    *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   This program is distributed in the hope that it will be useful,       *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with this program; if not, write to the                         *
+ *   Free Software Foundation, Inc.,                                       *
+ *   59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.             *
+ ***************************************************************************/
+
+#include "bundled_assets.h"
+
+#include <algorithm>
+#include <cerrno>
+#include <cstdint>
+#include <cstring>
+#include <functional>
+#include <map>
+#include <utility>
+
+#if defined( ANDROID )
+#include <android/asset_manager.h>
+#include <android/asset_manager_jni.h>
+#include <jni.h>
+#endif
+
+#include "logging.h"
+#include "system.h"
+
+namespace
+{
+    struct BundledAsset
+    {
+        // Path of the asset inside the application package, it is empty if the asset is located in the pack
+        std::string assetPath;
+
+        // Data of the asset located in the pack
+        const uint8_t * data{ nullptr };
+        size_t size{ 0 };
+    };
+
+    // Relationship between the file system path of the bundled asset and its location inside the application package. This registry is filled
+    // only before the native code is started, so it doesn't need any synchronization.
+    std::map<std::string, BundledAsset, std::less<>> bundledAssets;
+
+#if defined( ANDROID )
+    // The Java AssetManager instance has to be kept alive as long as the native AAssetManager obtained from it is used
+    jobject javaAssetManager{ nullptr };
+    AAssetManager * assetManager{ nullptr };
+
+    // The pack is kept opened (and therefore mapped into memory) as long as the assets located in it are registered
+    AAsset * packAsset{ nullptr };
+
+    // The format of the pack should be kept in sync with the generateAssetsPack task in android/app/build.gradle
+    // "FH2P"
+    const uint32_t packMagic{ 0x50324846 };
+    const uint32_t packVersion{ 1 };
+    // Magic, version, number of files and offset of the file data
+    const size_t packHeaderSize{ 16 };
+    // File offset, file size and file name length
+    const size_t packRecordSize{ 10 };
+#endif
+
+    std::string getDirectoryPrefix( const std::string_view directory )
+    {
+        std::string result{ directory };
+
+        if ( result.empty() || result.back() != '/' ) {
+            result += '/';
+        }
+
+        return result;
+    }
+
+#if defined( ANDROID )
+    uint32_t readLE32( const uint8_t * data )
+    {
+        return static_cast<uint32_t>( data[0] ) | ( static_cast<uint32_t>( data[1] ) << 8 ) | ( static_cast<uint32_t>( data[2] ) << 16 )
+               | ( static_cast<uint32_t>( data[3] ) << 24 );
+    }
+
+    uint16_t readLE16( const uint8_t * data )
+    {
+        return static_cast<uint16_t>( data[0] | ( data[1] << 8 ) );
+    }
+
+    // Registers all the assets located in the given pack. The pack data should stay valid as long as these assets are registered.
+    bool registerPack( const std::string & rootDir, const uint8_t * data, const size_t size )
+    {
+        if ( size < packHeaderSize || readLE32( data ) != packMagic || readLE32( data + 4 ) != packVersion ) {
+            return false;
+        }
+
+        const uint32_t count = readLE32( data + 8 );
+        const size_t dataOffset = readLE32( data + 12 );
+        if ( dataOffset > size ) {
+            return false;
+        }
+
+        std::map<std::string, BundledAsset, std::less<>> packedAssets;
+
+        size_t recordOffset = packHeaderSize;
+
+        for ( uint32_t i = 0; i < count; ++i ) {
+            if ( recordOffset + packRecordSize > dataOffset ) {
+                return false;
+            }
+
+            const size_t fileOffset = readLE32( data + recordOffset );
+            const size_t fileSize = readLE32( data + recordOffset + 4 );
+            const size_t nameSize = readLE16( data + recordOffset + 8 );
+
+            recordOffset += packRecordSize;
+
+            if ( recordOffset + nameSize > dataOffset || fileOffset < dataOffset || fileOffset > size || fileSize > size - fileOffset ) {
+                return false;
+            }
+
+            BundledAsset asset;
+            asset.data = data + fileOffset;
+            asset.size = fileSize;
+
+            packedAssets.try_emplace( System::concatPath( rootDir, { reinterpret_cast<const char *>( data + recordOffset ), nameSize } ), asset );
+
+            recordOffset += nameSize;
+        }
+
+        bundledAssets.merge( packedAssets );
+
+        return true;
+    }
+
+    int readAsset( void * cookie, char * buf, int size )
+    {
+        return AAsset_read( static_cast<AAsset *>( cookie ), buf, static_cast<size_t>( size ) );
+    }
+
+    fpos_t seekAsset( void * cookie, fpos_t offset, int whence )
+    {
+        return AAsset_seek( static_cast<AAsset *>( cookie ), offset, whence );
+    }
+
+    int closeAsset( void * cookie )
+    {
+        AAsset_close( static_cast<AAsset *>( cookie ) );
+
+        return 0;
+    }
+
+    // Read-only stream over the data of the asset located in the pack
+    struct PackedAssetStream
+    {
+        const uint8_t * data{ nullptr };
+        size_t size{ 0 };
+        size_t pos{ 0 };
+    };
+
+    int readPackedAsset( void * cookie, char * buf, int size )
+    {
+        PackedAssetStream * stream = static_cast<PackedAssetStream *>( cookie );
+
+        const size_t sizeToRead = std::min( static_cast<size_t>( size ), stream->size - stream->pos );
+
+        std::memcpy( buf, stream->data + stream->pos, sizeToRead );
+        stream->pos += sizeToRead;
+
+        return static_cast<int>( sizeToRead );
+    }
+
+    fpos_t seekPackedAsset( void * cookie, fpos_t offset, int whence )
+    {
+        PackedAssetStream * stream = static_cast<PackedAssetStream *>( cookie );
+
+        fpos_t base = 0;
+
+        switch ( whence ) {
+        case SEEK_SET:
+            break;
+        case SEEK_CUR:
+            base = static_cast<fpos_t>( stream->pos );
+            break;
+        case SEEK_END:
+            base = static_cast<fpos_t>( stream->size );
+            break;
+        default:
+            errno = EINVAL;
+            return -1;
+        }
+
+        if ( offset < -base || base + offset > static_cast<fpos_t>( stream->size ) ) {
+            errno = EINVAL;
+            return -1;
+        }
+
+        stream->pos = static_cast<size_t>( base + offset );
+
+        return static_cast<fpos_t>( stream->pos );
+    }
+
+    int closePackedAsset( void * cookie )
+    {
+        delete static_cast<PackedAssetStream *>( cookie );
+
+        return 0;
+    }
+
+    std::string getJavaString( JNIEnv * env, jstring str )
+    {
+        const char * chars = env->GetStringUTFChars( str, nullptr );
+        std::string result{ chars };
+        env->ReleaseStringUTFChars( str, chars );
+
+        return result;
+    }
+#endif
+}
+
+#if defined( ANDROID )
+extern "C" JNIEXPORT void JNICALL Java_org_fheroes2_GameActivity_registerBundledAssets( JNIEnv * env, jclass clazz, jobject assetManagerObj, jstring rootDir,
+                                                                                       jobjectArray assetPaths );
+extern "C" JNIEXPORT void JNICALL Java_org_fheroes2_GameActivity_registerBundledAssetsPack( JNIEnv * env, jclass clazz, jstring rootDir, jstring packPath );
+
+extern "C" JNIEXPORT void JNICALL Java_org_fheroes2_GameActivity_registerBundledAssets( JNIEnv * env, jclass /* clazz */, jobject assetManagerObj,
+                                                                                       jstring rootDir, jobjectArray assetPaths )
+{
+    bundledAssets.clear();
+
+    if ( packAsset != nullptr ) {
+        AAsset_close( packAsset );
+        packAsset = nullptr;
+    }
+
+    if ( javaAssetManager != nullptr ) {
+        env->DeleteGlobalRef( javaAssetManager );
+    }
+
+    javaAssetManager = env->NewGlobalRef( assetManagerObj );
+    assetManager = AAssetManager_fromJava( env, javaAssetManager );
+
+    const std::string rootDirStr = getJavaString( env, rootDir );
+
+    const jsize assetPathsCount = env->GetArrayLength( assetPaths );
+
+    for ( jsize i = 0; i < assetPathsCount; ++i ) {
+        jstring assetPath = static_cast<jstring>( env->GetObjectArrayElement( assetPaths, i ) );
+
+        BundledAsset asset;
+        asset.assetPath = getJavaString( env, assetPath );
+
+        env->DeleteLocalRef( assetPath );
+
+        bundledAssets.try_emplace( System::concatPath( rootDirStr, asset.assetPath ), std::move( asset ) );
+    }
+
+    VERBOSE_LOG( bundledAssets.size() << " bundled assets have been registered" )
+}
+
+extern "C" JNIEXPORT void JNICALL Java_org_fheroes2_GameActivity_registerBundledAssetsPack( JNIEnv * env, jclass /* clazz */, jstring rootDir,
+                                                                                           jstring packPath )
+{
+    if ( assetManager == nullptr || packAsset != nullptr ) {
+        return;
+    }
+
+    const std::string packPathStr = getJavaString( env, packPath );
+
+    // The pack is stored uncompressed in the APK, so its buffer is just a memory mapping of the corresponding part of the APK
+    packAsset = AAssetManager_open( assetManager, packPathStr.c_str(), AASSET_MODE_BUFFER );
+    if ( packAsset == nullptr ) {
+        ERROR_LOG( "Failed to open the pack of bundled assets " << packPathStr )
+        return;
+    }
+
+    const void * data = AAsset_getBuffer( packAsset );
+    const off_t size = AAsset_getLength( packAsset );
+
+    if ( data == nullptr || size < 0 || !registerPack( getJavaString( env, rootDir ), static_cast<const uint8_t *>( data ), static_cast<size_t>( size ) ) ) {
+        ERROR_LOG( "The pack of bundled assets " << packPathStr << " is corrupted" )
+
+        AAsset_close( packAsset );
+        packAsset = nullptr;
+
+        return;
+    }
+
+    VERBOSE_LOG( "The pack of bundled assets " << packPathStr << " has been registered" )
+}
+#endif
+
+namespace BundledAssets
+{
+    bool isFile( const std::string_view path )
+    {
+        return bundledAssets.find( path ) != bundledAssets.end();
+    }
+
+    bool isDirectory( const std::string_view path )
+    {
+        const std::string prefix = getDirectoryPrefix( path );
+
+        const auto iter = bundledAssets.lower_bound( prefix );
+
+        return iter != bundledAssets.end() && iter->first.compare( 0, prefix.size(), prefix ) == 0;
+    }
+
+    std::vector<std::string> getFiles( const std::string_view directory )
+    {
+        const std::string prefix = getDirectoryPrefix( directory );
+
+        std::vector<std::string> result;
+
+        for ( auto iter = bundledAssets.lower_bound( prefix ); iter != bundledAssets.end() && iter->first.compare( 0, prefix.size(), prefix ) == 0; ++iter ) {
+            // Skip the assets located in the subdirectories
+            if ( iter->first.find( '/', prefix.size() ) != std::string::npos ) {
+                continue;
+            }
+
+            result.push_back( iter->first );
+        }
+
+        return result;
+    }
+
+    std::FILE * open( const std::string_view path )
+    {
+#if defined( ANDROID )
+        const auto iter = bundledAssets.find( path );
+        if ( iter == bundledAssets.end() ) {
+            return nullptr;
+        }
+
+        const BundledAsset & bundledAsset = iter->second;
+
+        if ( bundledAsset.data != nullptr ) {
+            PackedAssetStream * stream = new PackedAssetStream;
+            stream->data = bundledAsset.data;
+            stream->size = bundledAsset.size;
+
+            std::FILE * file = funopen( stream, readPackedAsset, nullptr, seekPackedAsset, closePackedAsset );
+            if ( file == nullptr ) {
+                delete stream;
+            }
+
+            return file;
+        }
+
+        if ( assetManager == nullptr ) {
+            return nullptr;
+        }
+
+        AAsset * asset = AAssetManager_open( assetManager, bundledAsset.assetPath.c_str(), AASSET_MODE_RANDOM );
+        if ( asset == nullptr ) {
+            ERROR_LOG( "Failed to open bundled asset " << bundledAsset.assetPath )
+            return nullptr;
+        }
+
+        std::FILE * file = funopen( asset, readAsset, nullptr, seekAsset, closeAsset );
+        if ( file == nullptr ) {
+            AAsset_close( asset );
+        }
+
+        return file;
+#else
+        (void)path;
+
+        return nullptr;
+#endif
+    }
+}
@@ -0,0 +1,51 @@
+/***************************************************************************
+ *   fheroes2: https://github.com/ihhub/fheroes2                           *
+ *   Copyright (C) 2025                                                    *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ *   This program is distributed in the hope that it will be useful,       *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *   GNU General Public License for more details.                          *
+ *                                                                         *
+ *   You should have received a copy of the GNU General Public License     *
+ *   along with this program; if not, write to the                         *
+ *   Free Software Foundation, Inc.,                                       *
+ *   59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.             *
+ ***************************************************************************/
+
+#pragma once
+
+#include <cstdio>
+#include <string>
+#include <string_view>
+#include <vector>
+
+// Bundled assets are read-only files that are read directly from the application package instead of the file system. Each of them is
+// registered under a regular file system path, and the functions of the System namespace and the StreamFile class treat such paths as if
+// they were regular files. Bundled assets take precedence over the files on the file system located at the same paths.
+// Currently, bundled assets are only used on Android, where they are registered by the Java code before the native code is started.
+//
+// Bundled assets may also be stored in a single pack, which is stored uncompressed in the application package and mapped into memory as a whole.
+// All the numbers in the pack are little-endian. The pack consists of:
+// - the header: magic number "FH2P" (uint32_t), version (uint32_t), number of files (uint32_t) and offset of the file data (uint32_t);
+// - the index sorted by file name: file data offset from the beginning of the pack (uint32_t), file size (uint32_t), file name length (uint16_t)
+//   and the file name in UTF-8 relative to the root directory of the pack, using '/' as a separator;
+// - the file data in the same order as in the index.
+namespace BundledAssets
+{
+    bool isFile( const std::string_view path );
+
+    // Returns true if there is at least one bundled asset located in the given directory or in one of its subdirectories.
+    bool isDirectory( const std::string_view path );
+
+    // Returns the full paths of the bundled assets located directly in the given directory.
+    std::vector<std::string> getFiles( const std::string_view directory );
+
+    // Opens the bundled asset for reading. Returns nullptr if there is no bundled asset at the given path or it cannot be opened.
+    std::FILE * open( const std::string_view path );
+}
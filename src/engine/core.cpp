@@ -1,6 +1,6 @@
 /***************************************************************************
  *   fheroes2: https://github.com/ihhub/fheroes2                           *
- *   Copyright (C) 2021 - 2024                                             *
+ *   Copyright (C) 2021 - 2025                                             *
  *                                                                         *
  *   This program is free software; you can redistribute it and/or modify  *
  *   it under the terms of the GNU General Public License as published by  *
@@ -44,6 +44,7 @@
 #include "audio.h"
 #include "localevent.h"
 #include "logging.h"
+#include "tools.h"
 
 #if defined( TARGET_PS_VITA )
 #include <psp2/kernel/processmgr.h>
@@ -136,6 +137,8 @@ namespace
 
     void freeCoreInternally()
     {
+        StopAccessibilitySpeech();
+
         if ( fheroes2::isComponentInitialized( fheroes2::SystemInitializationComponent::GameController ) ) {
             LocalEvent::Get().CloseController();
         }
@@ -38,6 +38,7 @@
 #include <strings.h>
 #endif
 
+#include "bundled_assets.h"
 #include "system.h"
 
 namespace
@@ -64,17 +65,26 @@ namespace
 
     void getFilesFromDirectory( const std::string & path, const std::string & filter, const bool needExactMatch, ListFiles & files )
     {
-        std::string correctedPath;
-        if ( !System::GetCaseInsensitivePath( path, correctedPath ) ) {
-            return;
-        }
-
 #if defined( _WIN32 )
         auto * const strCmp = _stricmp;
 #else
         auto * const strCmp = strcasecmp;
 #endif
 
+        // Bundled assets take precedence over the files located at the same paths
+        for ( std::string & bundledAssetPath : BundledAssets::getFiles( path ) ) {
+            if ( !nameFilter( System::GetFileName( bundledAssetPath ), needExactMatch, filter, strCmp ) ) {
+                continue;
+            }
+
+            files.emplace_back( std::move( bundledAssetPath ) );
+        }
+
+        std::string correctedPath;
+        if ( !System::GetCaseInsensitivePath( path, correctedPath ) ) {
+            return;
+        }
+
 #if defined( TARGET_PS_VITA )
         // On PS Vita, getting a list of files using std::filesystem for some reason works much slower than using the native file system API
         class SceUIDWrapper
@@ -146,7 +156,12 @@ namespace
                 continue;
             }
 
-            files.emplace_back( System::fsPathToString( entryPath ) );
+            std::string entryPathStr = System::fsPathToString( entryPath );
+            if ( BundledAssets::isFile( entryPathStr ) ) {
+                continue;
+            }
+
+            files.emplace_back( std::move( entryPathStr ) );
         }
 #endif
     }
@@ -166,6 +181,11 @@ void ListFiles::ReadDir( const std::string & path, const std::string & filter )
 
 void ListFiles::FindFileInDir( const std::string_view path, const std::string_view fileName )
 {
+    if ( std::string bundledAssetPath = System::concatPath( path, fileName ); BundledAssets::isFile( bundledAssetPath ) ) {
+        emplace_back( std::move( bundledAssetPath ) );
+        return;
+    }
+
     std::string correctedFilePath;
     // If the file system is case-sensitive, then here we will get the actual file path using the case-insensitive
     // search (if such a file exists). If the file system is case-insensitive, we will just get the passed path to
@@ -1528,6 +1528,12 @@ namespace fheroes2
         }
 
         _prevRoi = temp;
+
+        if ( !_isFirstFrameRendered ) {
+            _isFirstFrameRendered = true;
+
+            System::onFirstFrameRendered();
+        }
     }
 
     void Display::updateNextRenderRoi( const Rect & roi )
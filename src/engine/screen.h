@@ -274,6 +274,8 @@ namespace fheroes2
         // Previous area drawn on the screen.
         Rect _prevRoi;
 
+        bool _isFirstFrameRendered{ false };
+
         Size _screenSize;
 
         // Only for cases of direct drawing on rendered 8-bit image.
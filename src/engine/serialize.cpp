@@ -39,6 +39,7 @@
 #include "tools.h"
 #endif
 
+#include "bundled_assets.h"
 #include "logging.h"
 
 namespace
@@ -407,7 +408,14 @@ std::string_view ROStreamBuf::getStringView( const size_t size /* = 0 */ )
 
 bool StreamFile::open( const std::string & fn, const std::string & mode )
 {
-    _file.reset( std::fopen( fn.c_str(), mode.c_str() ) );
+    // Bundled assets are read-only
+    if ( mode.find_first_of( "wa+" ) == std::string::npos && BundledAssets::isFile( fn ) ) {
+        _file.reset( BundledAssets::open( fn ) );
+    }
+    else {
+        _file.reset( std::fopen( fn.c_str(), mode.c_str() ) );
+    }
+
     // codechecker_false_positive [alpha.unix.Stream] Opened stream never closed. Potential resource leak
     if ( !_file ) {
         ERROR_LOG( "Error opening file " << fn )
@@ -62,6 +62,8 @@
 #if defined( ANDROID )
 #include <SDL_error.h>
 #include <SDL_system.h>
+
+#include <jni.h>
 #endif
 
 #if SDL_VERSION_ATLEAST( 2, 0, 1 ) && ( !defined( __linux__ ) || defined( ANDROID ) )
@@ -74,6 +76,9 @@
 #pragma GCC diagnostic pop
 #endif
 
+#include "bundled_assets.h"
+#include "logging.h"
+
 namespace
 {
 #if !defined( __linux__ ) || defined( ANDROID )
@@ -263,7 +268,36 @@ namespace
         return result;
     }
 #endif
+
+#if defined( ANDROID )
+    // GameActivity class and its methods called by the native code. They are obtained once GameActivity registers itself before the native code is
+    // started, so they are never looked up on the game thread while the game is running.
+    jclass gameActivityClass{ nullptr };
+    jmethodID onNativeFirstFrameRenderedMethod{ nullptr };
+#endif
+}
+
+#if defined( ANDROID )
+extern "C" JNIEXPORT void JNICALL Java_org_fheroes2_GameActivity_registerGameActivity( JNIEnv * env, jclass clazz );
+
+extern "C" JNIEXPORT void JNICALL Java_org_fheroes2_GameActivity_registerGameActivity( JNIEnv * env, jclass clazz )
+{
+    // The process may be kept alive between the game launches, and the class is the same for all of them
+    if ( gameActivityClass != nullptr ) {
+        return;
+    }
+
+    onNativeFirstFrameRenderedMethod = env->GetStaticMethodID( clazz, "onNativeFirstFrameRendered", "()V" );
+    if ( onNativeFirstFrameRenderedMethod == nullptr ) {
+        env->ExceptionClear();
+
+        ERROR_LOG( "Failed to find the GameActivity.onNativeFirstFrameRendered() method." )
+        return;
+    }
+
+    gameActivityClass = static_cast<jclass>( env->NewGlobalRef( clazz ) );
 }
+#endif
 
 bool System::isHandheldDevice()
 {
@@ -422,6 +456,10 @@ bool System::IsFile( const std::string_view path )
         return false;
     }
 
+    if ( BundledAssets::isFile( path ) ) {
+        return true;
+    }
+
     std::string correctedPath;
     if ( !GetCaseInsensitivePath( path, correctedPath ) ) {
         return false;
@@ -440,6 +478,10 @@ bool System::IsDirectory( const std::string_view path )
         return false;
     }
 
+    if ( BundledAssets::isDirectory( path ) ) {
+        return true;
+    }
+
     std::string correctedPath;
     if ( !GetCaseInsensitivePath( path, correctedPath ) ) {
         return false;
@@ -616,3 +658,26 @@ tm System::GetTM( const time_t time )
 
     return result;
 }
+
+void System::onFirstFrameRendered()
+{
+#if defined( ANDROID )
+    if ( gameActivityClass == nullptr ) {
+        return;
+    }
+
+    JNIEnv * env = static_cast<JNIEnv *>( SDL_AndroidGetJNIEnv() );
+    if ( env == nullptr ) {
+        return;
+    }
+
+    env->CallStaticVoidMethod( gameActivityClass, onNativeFirstFrameRenderedMethod );
+
+    // A pending exception would break the next JNI call made by this thread
+    if ( env->ExceptionCheck() ) {
+        env->ExceptionClear();
+
+        ERROR_LOG( "GameActivity.onNativeFirstFrameRendered() has thrown an exception." )
+    }
+#endif
+}
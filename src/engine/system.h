@@ -86,4 +86,7 @@ namespace System
     std::string fsPathToString( const std::filesystem::path & path );
 
     tm GetTM( const time_t time );
+
+    // Notifies the platform-specific code that the first frame has been rendered. It is used on Android to measure the startup time.
+    void onFirstFrameRendered();
 }
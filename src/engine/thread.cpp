@@ -85,6 +85,9 @@ namespace MultiThreading
 
             _worker->join();
             _worker.reset();
+
+            // The worker thread can be created again later.
+            _exitFlag = false;
         }
 #endif
     }
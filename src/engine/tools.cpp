@@ -16,16 +16,22 @@
 #include <zconf.h>
 #include <zlib.h>
 
-// --- ACCESSIBILITY FIX START ---
-#ifdef __ANDROID__
+#if defined( ANDROID )
+#include <chrono>
+#include <condition_variable>
+#include <deque>
+#include <mutex>
+#include <optional>
+#include <utility>
+
 #include <jni.h>
 
-// Объявляем функцию SDL здесь, глобально.
-// extern "C" нужно, чтобы C++ понял, что это функция из C-библиотеки.
-extern "C" void* SDL_AndroidGetJNIEnv();
+#include "logging.h"
+#include "thread.h"
 
+// This function is provided by SDL, its declaration is not included to avoid the dependency of this file on SDL headers
+extern "C" void * SDL_AndroidGetJNIEnv();
 #endif
-// --- ACCESSIBILITY FIX END ---
 
 std::string StringTrim( std::string str )
 {
@@ -166,36 +172,424 @@ namespace fheroes2
     }
 }
 
-// --- ACCESSIBILITY CODE START ---
-void SpeakAccessibility( const std::string & text )
+#if defined( ANDROID )
+namespace
 {
-#ifdef __ANDROID__
-    if ( text.empty() ) {
-        return;
-    }
+    // Messages for the screen reader are passed to the Java code on a dedicated thread, so the game thread never blocks inside JNI or Java code.
+    class AccessibilitySpeechManager final : public MultiThreading::AsyncManager
+    {
+    public:
+        void speak( std::string text, const uint32_t attributes )
+        {
+            if ( !initialize() ) {
+                return;
+            }
 
-    // ИСПРАВЛЕНИЕ: Используем static_cast вместо (JNIEnv*), так как проект запрещает старые касты.
-    JNIEnv * env = static_cast<JNIEnv *>( SDL_AndroidGetJNIEnv() );
+            createWorker();
 
-    if ( !env ) {
-        return;
-    }
+            const std::scoped_lock<std::mutex> lock( _mutex );
+
+            // If the screen reader cannot keep up, the oldest messages are already outdated
+            if ( _messages.size() >= maxQueueSize ) {
+                _messages.pop_front();
+            }
+
+            _messages.push_back( { std::move( text ), attributes, getEmitTime() } );
+
+            // The worker thread may be waiting for the dwell time to pass, but the regular messages should not wait for it
+            _dwellNotification.notify_one();
+
+            notifyWorker();
+        }
+
+        // Replaces the message waiting for its dwell time to pass (if any) with the given one. An empty text only cancels the waiting message.
+        void speakAfterDwell( std::string text, const uint32_t attributes, const std::chrono::milliseconds dwellTime )
+        {
+            if ( !initialize() ) {
+                return;
+            }
 
-    jclass clazz = env->FindClass( "org/fheroes2/GameActivity" );
+            createWorker();
 
-    if ( clazz ) {
-        jmethodID method = env->GetStaticMethodID( clazz, "sendToScreenReader", "(Ljava/lang/String;)V" );
+            const std::scoped_lock<std::mutex> lock( _mutex );
 
-        if ( method ) {
-            jstring jMsg = env->NewStringUTF( text.c_str() );
-            env->CallStaticVoidMethod( clazz, method, jMsg );
-            env->DeleteLocalRef( jMsg );
+            if ( text.empty() ) {
+                _dwellMessage.reset();
+                return;
+            }
+
+            _dwellMessage = Message{ std::move( text ), attributes, 0 };
+            _dwellDeadline = std::chrono::steady_clock::now() + dwellTime;
+
+            // The worker thread that is already waiting for the previous message checks the new deadline once the previous one has passed
+            notifyWorker();
         }
-        env->DeleteLocalRef( clazz );
+
+        void setSpeechRate( const int preferredRatePercent, const int maxRatePercent )
+        {
+            if ( !initialize() ) {
+                return;
+            }
+
+            createWorker();
+
+            const std::scoped_lock<std::mutex> lock( _mutex );
+
+            // Only the latest speech rate matters
+            _speechRate = SpeechRate{ preferredRatePercent, maxRatePercent };
+
+            notifyWorker();
+        }
+
+        void setSpeechLanguage( std::string language )
+        {
+            if ( !initialize() ) {
+                return;
+            }
+
+            createWorker();
+
+            const std::scoped_lock<std::mutex> lock( _mutex );
+
+            // Only the latest language matters, e.g. when the game checks the translations of all languages
+            _speechLanguage = std::move( language );
+
+            notifyWorker();
+        }
+
+        // This method should be called on the game thread, because it releases the references obtained by initialize()
+        void stop()
+        {
+            {
+                const std::scoped_lock<std::mutex> lock( _mutex );
+
+                // Messages that have not been sent yet are outdated anyway, and the worker thread should not wait for the dwell time to pass
+                _messages.clear();
+                _dwellMessage.reset();
+                _speechRate.reset();
+                _speechLanguage.reset();
+
+                _dwellNotification.notify_one();
+            }
+
+            stopWorker();
+
+            if ( _activityClass != nullptr ) {
+                JNIEnv * env = static_cast<JNIEnv *>( SDL_AndroidGetJNIEnv() );
+                if ( env != nullptr ) {
+                    env->DeleteGlobalRef( _activityClass );
+                }
+            }
+
+            _isInitialized = false;
+            _activityClass = nullptr;
+            _speakAccessibilityMethod = nullptr;
+            _setSpeechRateMethod = nullptr;
+            _setSpeechLanguageMethod = nullptr;
+        }
+
+    private:
+        struct Message
+        {
+            std::string text;
+            uint32_t attributes{ 0 };
+            int64_t emitTime{ 0 };
+        };
+
+        struct SpeechRate
+        {
+            int preferredRatePercent{ 0 };
+            int maxRatePercent{ 0 };
+        };
+
+        enum class TaskType
+        {
+            NONE,
+            MESSAGE,
+            DWELL_MESSAGE,
+            SPEECH_RATE,
+            SPEECH_LANGUAGE
+        };
+
+        // The emission time is used to measure the latency of the speech, the steady clock uses the same clock as System.nanoTime()
+        static int64_t getEmitTime()
+        {
+            return std::chrono::duration_cast<std::chrono::nanoseconds>( std::chrono::steady_clock::now().time_since_epoch() ).count();
+        }
+
+        static constexpr size_t maxQueueSize{ 16 };
+
+        // This method should be called on the game thread: FindClass() uses the class loader associated with the calling thread, and threads
+        // attached to the JVM by the native code can only find the system classes.
+        bool initialize()
+        {
+            if ( _isInitialized ) {
+                return _activityClass != nullptr;
+            }
+
+            _isInitialized = true;
+
+            JNIEnv * env = static_cast<JNIEnv *>( SDL_AndroidGetJNIEnv() );
+            if ( env == nullptr ) {
+                return false;
+            }
+
+            jclass clazz = env->FindClass( "org/fheroes2/GameActivity" );
+            if ( clazz == nullptr ) {
+                env->ExceptionClear();
+
+                ERROR_LOG( "Failed to find the GameActivity class." )
+                return false;
+            }
+
+            _speakAccessibilityMethod = env->GetStaticMethodID( clazz, "speakAccessibility", "(Ljava/lang/String;IJ)V" );
+            if ( _speakAccessibilityMethod == nullptr ) {
+                env->ExceptionClear();
+                env->DeleteLocalRef( clazz );
+
+                ERROR_LOG( "Failed to find the GameActivity.speakAccessibility() method." )
+                return false;
+            }
+
+            _setSpeechRateMethod = env->GetStaticMethodID( clazz, "setSpeechRate", "(II)V" );
+            if ( _setSpeechRateMethod == nullptr ) {
+                env->ExceptionClear();
+                env->DeleteLocalRef( clazz );
+
+                ERROR_LOG( "Failed to find the GameActivity.setSpeechRate() method." )
+                return false;
+            }
+
+            _setSpeechLanguageMethod = env->GetStaticMethodID( clazz, "setSpeechLanguage", "(Ljava/lang/String;)V" );
+            if ( _setSpeechLanguageMethod == nullptr ) {
+                env->ExceptionClear();
+                env->DeleteLocalRef( clazz );
+
+                ERROR_LOG( "Failed to find the GameActivity.setSpeechLanguage() method." )
+                return false;
+            }
+
+            _activityClass = static_cast<jclass>( env->NewGlobalRef( clazz ) );
+
+            env->DeleteLocalRef( clazz );
+
+            return _activityClass != nullptr;
+        }
+
+        // This method is called by the worker thread and is protected by _mutex
+        bool prepareTask() override
+        {
+            // The speech language and rate are passed before the messages, so they are normalized and spoken accordingly
+            if ( _speechLanguage ) {
+                _taskType = TaskType::SPEECH_LANGUAGE;
+                _taskSpeechLanguage = std::move( *_speechLanguage );
+                _speechLanguage.reset();
+            }
+            else if ( _speechRate ) {
+                _taskType = TaskType::SPEECH_RATE;
+                _taskSpeechRate = *_speechRate;
+                _speechRate.reset();
+            }
+            else if ( !_messages.empty() ) {
+                _taskType = TaskType::MESSAGE;
+                _taskMessage = std::move( _messages.front() );
+                _messages.pop_front();
+            }
+            else if ( _dwellMessage ) {
+                // The message itself is taken once its dwell time has passed
+                _taskType = TaskType::DWELL_MESSAGE;
+            }
+            else {
+                // The waiting message has been cancelled or already sent
+                _taskType = TaskType::NONE;
+            }
+
+            return _speechRate.has_value() || !_messages.empty() || ( _dwellMessage && _taskType != TaskType::DWELL_MESSAGE );
+        }
+
+        // This method is called by the worker thread, but is not protected by _mutex
+        void executeTask() override
+        {
+            if ( _taskType == TaskType::NONE ) {
+                return;
+            }
+
+            if ( _taskType == TaskType::SPEECH_RATE ) {
+                sendTaskSpeechRate();
+                return;
+            }
+
+            if ( _taskType == TaskType::SPEECH_LANGUAGE ) {
+                sendTaskSpeechLanguage();
+                return;
+            }
+
+            if ( _taskType == TaskType::DWELL_MESSAGE && !waitForDwellMessage() ) {
+                return;
+            }
+
+            sendTaskMessage();
+        }
+
+        // Waits until the dwell time of the waiting message passes. Returns false if the message has been cancelled or there is a regular message
+        // to send first, in which case this task is prepared again later.
+        bool waitForDwellMessage()
+        {
+            std::unique_lock<std::mutex> lock( _mutex );
+
+            while ( _dwellMessage && _messages.empty() ) {
+                // The deadline may be postponed by the newer message while waiting
+                if ( std::chrono::steady_clock::now() >= _dwellDeadline ) {
+                    _taskMessage = std::move( *_dwellMessage );
+                    _taskMessage.emitTime = getEmitTime();
+                    _dwellMessage.reset();
+
+                    return true;
+                }
+
+                _dwellNotification.wait_until( lock, _dwellDeadline );
+            }
+
+            return false;
+        }
+
+        void sendTaskMessage()
+        {
+            // The worker thread is attached to the JVM by SDL on the first call and is detached automatically when it exits
+            JNIEnv * env = static_cast<JNIEnv *>( SDL_AndroidGetJNIEnv() );
+            if ( env == nullptr ) {
+                return;
+            }
+
+            jstring message = env->NewStringUTF( _taskMessage.text.c_str() );
+            if ( message == nullptr ) {
+                env->ExceptionClear();
+                return;
+            }
+
+            env->CallStaticVoidMethod( _activityClass, _speakAccessibilityMethod, message, static_cast<jint>( _taskMessage.attributes ),
+                                       static_cast<jlong>( _taskMessage.emitTime ) );
+            if ( env->ExceptionCheck() ) {
+                env->ExceptionClear();
+
+                ERROR_LOG( "Failed to pass the message to the screen reader." )
+            }
+
+            env->DeleteLocalRef( message );
+        }
+
+        void sendTaskSpeechRate()
+        {
+            JNIEnv * env = static_cast<JNIEnv *>( SDL_AndroidGetJNIEnv() );
+            if ( env == nullptr ) {
+                return;
+            }
+
+            env->CallStaticVoidMethod( _activityClass, _setSpeechRateMethod, static_cast<jint>( _taskSpeechRate.preferredRatePercent ),
+                                       static_cast<jint>( _taskSpeechRate.maxRatePercent ) );
+            if ( env->ExceptionCheck() ) {
+                env->ExceptionClear();
+
+                ERROR_LOG( "Failed to pass the speech rate to the screen reader." )
+            }
+        }
+
+        void sendTaskSpeechLanguage()
+        {
+            JNIEnv * env = static_cast<JNIEnv *>( SDL_AndroidGetJNIEnv() );
+            if ( env == nullptr ) {
+                return;
+            }
+
+            jstring language = env->NewStringUTF( _taskSpeechLanguage.c_str() );
+            if ( language == nullptr ) {
+                env->ExceptionClear();
+                return;
+            }
+
+            env->CallStaticVoidMethod( _activityClass, _setSpeechLanguageMethod, language );
+            if ( env->ExceptionCheck() ) {
+                env->ExceptionClear();
+
+                ERROR_LOG( "Failed to pass the speech language to the screen reader." )
+            }
+
+            env->DeleteLocalRef( language );
+        }
+
+        // These variables are initialized by the game thread before the worker thread is created and are never changed while it exists
+        bool _isInitialized{ false };
+        jclass _activityClass{ nullptr };
+        jmethodID _speakAccessibilityMethod{ nullptr };
+        jmethodID _setSpeechRateMethod{ nullptr };
+        jmethodID _setSpeechLanguageMethod{ nullptr };
+
+        // These variables can be accessed by multiple threads and they are protected by _mutex
+        std::deque<Message> _messages;
+        std::optional<Message> _dwellMessage;
+        std::optional<SpeechRate> _speechRate;
+        std::optional<std::string> _speechLanguage;
+        std::chrono::steady_clock::time_point _dwellDeadline;
+        std::condition_variable _dwellNotification;
+
+        // These variables can be accessed only by the worker thread
+        TaskType _taskType{ TaskType::NONE };
+        Message _taskMessage;
+        SpeechRate _taskSpeechRate;
+        std::string _taskSpeechLanguage;
+    };
+
+    AccessibilitySpeechManager accessibilitySpeechManager;
+}
+#endif
+
+void SpeakAccessibility( const std::string & text, const SpeechAttributes & attributes /* = {} */ )
+{
+#if defined( ANDROID )
+    if ( text.empty() ) {
+        return;
     }
+
+    accessibilitySpeechManager.speak( text, attributes.pack() );
 #else
-    // Заглушка для ПК
     (void)text;
+    (void)attributes;
+#endif
+}
+
+void SpeakAccessibilityAfterDwell( const std::string & text, const SpeechAttributes & attributes, const uint32_t dwellTimeMs )
+{
+#if defined( ANDROID )
+    accessibilitySpeechManager.speakAfterDwell( text, attributes.pack(), std::chrono::milliseconds( dwellTimeMs ) );
+#else
+    (void)text;
+    (void)attributes;
+    (void)dwellTimeMs;
+#endif
+}
+
+void SetAccessibilitySpeechRate( const int preferredRatePercent, const int maxRatePercent )
+{
+#if defined( ANDROID )
+    accessibilitySpeechManager.setSpeechRate( preferredRatePercent, maxRatePercent );
+#else
+    (void)preferredRatePercent;
+    (void)maxRatePercent;
+#endif
+}
+
+void SetAccessibilitySpeechLanguage( const std::string & language )
+{
+#if defined( ANDROID )
+    accessibilitySpeechManager.setSpeechLanguage( language );
+#else
+    (void)language;
+#endif
+}
+
+void StopAccessibilitySpeech()
+{
+#if defined( ANDROID )
+    accessibilitySpeechManager.stop();
 #endif
 }
-// --- ACCESSIBILITY CODE END ---
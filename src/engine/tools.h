@@ -203,6 +203,62 @@ namespace fheroes2
     }
 }
 
-// --- ACCESSIBILITY FIX START ---
-void SpeakAccessibility( const std::string & text );
-// --- ACCESSIBILITY FIX END ---
+// Channels of the messages for the screen reader. Each channel has its own priority and keeps only its newest pending message.
+// The values should be kept in sync with SpeechScheduler.Channel in the Android app.
+enum class SpeechChannel : uint8_t
+{
+    STATUS_BAR = 0,
+    NAVIGATION = 1,
+    DIALOG = 2,
+    DANGER = 3
+};
+
+enum SpeechFlag : uint16_t
+{
+    SPEECH_FLAG_NONE = 0,
+    // Speak the message even if the same message of the same channel is being spoken right now
+    SPEECH_FLAG_REPEAT = 0x1,
+    // Do not interrupt the message of the same channel that is being spoken right now, but wait until it is finished
+    SPEECH_FLAG_NO_INTERRUPT = 0x2
+};
+
+struct SpeechAttributes
+{
+    SpeechChannel channel{ SpeechChannel::STATUS_BAR };
+
+    // Priority from 1 to 15, 0 means the default priority of the channel
+    uint8_t priority{ 0 };
+
+    // Pitch in percent of the normal pitch, 0 means the default pitch of the channel
+    uint8_t pitch{ 0 };
+
+    // Combination of SpeechFlag values
+    uint16_t flags{ SPEECH_FLAG_NONE };
+
+    // Packs the attributes into one word: bits 0-3 are the channel, bits 4-7 are the priority, bits 8-15 are the pitch and bits 16-31 are the flags.
+    // The layout should be kept in sync with SpeechScheduler in the Android app.
+    uint32_t pack() const
+    {
+        return ( static_cast<uint32_t>( channel ) & 0xF ) | ( static_cast<uint32_t>( priority & 0xF ) << 4 ) | ( static_cast<uint32_t>( pitch ) << 8 )
+               | ( static_cast<uint32_t>( flags ) << 16 );
+    }
+};
+
+// Passes the text to the screen reader. The text is passed asynchronously, so this function never blocks. Currently it is implemented only on Android.
+void SpeakAccessibility( const std::string & text, const SpeechAttributes & attributes = {} );
+
+// Passes the text to the screen reader once it has not been replaced by another text for the given dwell time, so the fast successive changes
+// (e.g. descriptions of the objects under the pointer during a drag across the map) are merged into one message. An empty text cancels the text
+// that is still waiting for its dwell time to pass. Currently it is implemented only on Android.
+void SpeakAccessibilityAfterDwell( const std::string & text, const SpeechAttributes & attributes, const uint32_t dwellTimeMs );
+
+// Sets the speech rate of the screen reader in percents of the normal rate. The rate grows from the preferred rate up to the maximum rate when
+// a lot of text is waiting to be spoken. Currently it is implemented only on Android.
+void SetAccessibilitySpeechRate( const int preferredRatePercent, const int maxRatePercent );
+
+// Sets the language of the texts passed to the screen reader, so they are normalized using the dictionary of this language. An empty abbreviation
+// means English. Currently it is implemented only on Android.
+void SetAccessibilitySpeechLanguage( const std::string & language );
+
+// Discards the texts that have not been passed to the screen reader yet and stops the thread passing them. Should be called on the engine shutdown.
+void StopAccessibilitySpeech();
@@ -80,6 +80,7 @@
 #include "settings.h"
 #include "system.h"
 #include "timing.h"
+#include "tools.h"
 #include "ui_tool.h"
 #include "zzlib.h"
 
@@ -318,6 +319,8 @@ int main( int argc, char ** argv )
 
         DEBUG_LOG( DBG_GAME, DBG_INFO, conf.String() )
 
+        SetAccessibilitySpeechRate( conf.speechRate(), conf.maxSpeechRate() );
+
         const DisplayInitializer displayInitializer;
         const DataInitializer dataInitializer;
 
@@ -33,6 +33,7 @@
 
 #include "math_tools.h"
 #include "screen.h"
+#include "settings.h"
 #include "ui_text.h"
 
 StatusBar::StatusBar()
@@ -48,12 +49,9 @@ fheroes2::Rect StatusBar::updateMessage( std::string msg )
         return {};
     }
 
-    // --- ACCESSIBILITY CODE START ---
-    // Если сообщение изменилось и оно не пустое — озвучиваем его
-    if ( !msg.empty() ) {
-        SpeakAccessibility( msg );
-    }
-    // --- ACCESSIBILITY CODE END ---
+    // The description of the object under the pointer is spoken only once the pointer stays on it for a while, and the empty message cancels the
+    // description of the object that the pointer has already left
+    SpeakAccessibilityAfterDwell( msg, { SpeechChannel::STATUS_BAR }, static_cast<uint32_t>( Settings::Get().speechDwellTime() ) );
 
     _prevMessage = msg;
 
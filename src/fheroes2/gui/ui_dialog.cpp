@@ -95,15 +95,16 @@ namespace fheroes2
     {
         outputInTextSupportMode( header, body, buttons );
 
-        // --- ACCESSIBILITY CODE START ---
-        // Озвучка при открытии любого диалога
+        // The dialog interrupts any previous dialog message, but its body should not interrupt its header
         if ( !header.empty() ) {
-            SpeakAccessibility( header.text() );
+            SpeakAccessibility( header.text(), { SpeechChannel::DIALOG } );
         }
         if ( !body.empty() ) {
-            SpeakAccessibility( body.text() );
+            SpeechAttributes attributes{ SpeechChannel::DIALOG };
+            attributes.flags = header.empty() ? SPEECH_FLAG_NONE : SPEECH_FLAG_NO_INTERRUPT;
+
+            SpeakAccessibility( body.text(), attributes );
         }
-        // --- ACCESSIBILITY CODE END ---
 
         const bool isProperDialog = ( buttons != 0 );
 
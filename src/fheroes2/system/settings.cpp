@@ -44,6 +44,7 @@
 #include "settings.h"
 #include "system.h"
 #include "tinyconfig.h"
+#include "tools.h"
 #include "translations.h"
 #include "ui_language.h"
 #include "version.h"
@@ -108,6 +109,9 @@ Settings::Settings()
     , music_volume( 6 )
     , _musicType( MUSIC_EXTERNAL )
     , _controllerPointerSpeed( 10 )
+    , _speechDwellTime( 150 )
+    , _speechRate( 120 )
+    , _maxSpeechRate( 200 )
     , heroes_speed( defaultSpeedDelay )
     , ai_speed( defaultSpeedDelay )
     , scroll_speed( SCROLL_SPEED_NORMAL )
@@ -299,6 +303,18 @@ bool Settings::Read( const std::string & filePath )
         _controllerPointerSpeed = std::clamp( config.IntParams( "controller pointer speed" ), 0, 100 );
     }
 
+    if ( config.Exists( "speech dwell time" ) ) {
+        _speechDwellTime = std::clamp( config.IntParams( "speech dwell time" ), 0, 2000 );
+    }
+
+    if ( config.Exists( "speech rate" ) ) {
+        _speechRate = std::clamp( config.IntParams( "speech rate" ), 50, 400 );
+    }
+
+    if ( config.Exists( "max speech rate" ) ) {
+        _maxSpeechRate = std::clamp( config.IntParams( "max speech rate" ), 50, 400 );
+    }
+
     if ( config.Exists( "first time game run" ) && config.StrParams( "first time game run" ) == "off" ) {
         resetFirstGameRun();
     }
@@ -511,6 +527,15 @@ std::string Settings::String() const
     os << std::endl << "# Controller pointer speed: 0 - 100" << std::endl;
     os << "controller pointer speed = " << _controllerPointerSpeed << std::endl;
 
+    os << std::endl << "# Time in milliseconds the pointer should stay on an object before the screen reader speaks it: 0 - 2000" << std::endl;
+    os << "speech dwell time = " << _speechDwellTime << std::endl;
+
+    os << std::endl << "# Speech rate of the screen reader in percents of the normal rate: 50 - 400" << std::endl;
+    os << "speech rate = " << _speechRate << std::endl;
+
+    os << std::endl << "# Speech rate of the screen reader used when a lot of text is waiting to be spoken, in percents of the normal rate: 50 - 400" << std::endl;
+    os << "max speech rate = " << _maxSpeechRate << std::endl;
+
     os << std::endl << "# First time game run (show additional hints): on/off" << std::endl;
     os << "first time game run = " << ( _gameOptions.Modes( GAME_FIRST_RUN ) ? "on" : "off" ) << std::endl;
 
@@ -569,6 +594,9 @@ bool Settings::setGameLanguage( const std::string & language )
 
     _gameLanguage = language;
 
+    // The screen reader normalizes the texts using the dictionary of the game language rather than of the device locale
+    SetAccessibilitySpeechLanguage( _gameLanguage );
+
     if ( _gameLanguage.empty() ) {
         Translation::reset();
         return true;
@@ -362,6 +362,21 @@ public:
         return _controllerPointerSpeed;
     }
 
+    int speechDwellTime() const
+    {
+        return _speechDwellTime;
+    }
+
+    int speechRate() const
+    {
+        return _speechRate;
+    }
+
+    int maxSpeechRate() const
+    {
+        return _maxSpeechRate;
+    }
+
     ZoomLevel ViewWorldZoomLevel() const
     {
         return _viewWorldZoomLevel;
@@ -425,6 +440,9 @@ private:
     int music_volume;
     MusicSource _musicType;
     int _controllerPointerSpeed;
+    int _speechDwellTime;
+    int _speechRate;
+    int _maxSpeechRate;
     int heroes_speed;
     int ai_speed;
     int scroll_speed;